@@ -0,0 +1,71 @@
+package com.hr.main;
+
+import com.hr.main.SmartLeaveSystem.AttendanceCalendar;
+import com.hr.main.SmartLeaveSystem.Employee;
+import com.hr.main.SmartLeaveSystem.LeaveRequest;
+import com.hr.main.SmartLeaveSystem.RequestIndex;
+import com.hr.main.SmartLeaveSystem.UserDirectory;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Attendance summary for one quarter: popcounts over the bitmap rows versus walking every approved
+// request day by day, plus the org-wide "present on day X" AND NOT. Ten requests per employee.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AttendanceBenchmark {
+    @Param({"1000", "100000"})
+    int employees;
+
+    AttendanceCalendar calendar;
+    List<LeaveRequest> requests;
+    LocalDate from = LocalDate.of(2025, 4, 1), to = LocalDate.of(2025, 6, 30), day = LocalDate.of(2025, 5, 14);
+
+    @Setup
+    public void setup() {
+        UserDirectory users = new UserDirectory();
+        for (int i = 0; i < employees; i++)
+            users.add(new Employee(100 + i, "Employee " + i, BenchData.email(100 + i), "pw" + i, SmartLeaveSystem.DEFAULT_LEAVES_PER_YEAR));
+        requests = BenchData.requests(employees * 10, employees, 29);
+        RequestIndex index = new RequestIndex();
+        for (LeaveRequest r : requests) index.add(r);
+        calendar = new AttendanceCalendar(users, () -> requests, index::forEmployee, Set::of);
+        calendar.members(null);
+    }
+
+    @Benchmark
+    public int[] quarterBitmaps() {
+        return calendar.leaveDays(from, to);
+    }
+
+    @Benchmark
+    public int oneEmployee() {
+        return calendar.leaveDays(100 + employees / 2, from, to);
+    }
+
+    @Benchmark
+    public int[] quarterScan() {
+        int[] leave = new int[employees];
+        int a = (int) from.toEpochDay(), b = (int) to.toEpochDay();
+        for (LeaveRequest r : requests) {
+            if (r.statusCode() != LeaveRequest.APPROVED) continue;
+            for (int d = Math.max(a, r.startDay()); d <= Math.min(b, r.endDay()); d++)
+                if (LocalDate.ofEpochDay(d).getDayOfWeek().getValue() < DayOfWeek.SATURDAY.getValue()) leave[r.getEmpId() - 100]++;
+        }
+        return leave;
+    }
+
+    @Benchmark
+    public BitSet presentOnDay() {
+        return calendar.presentOn(day, null);
+    }
+}
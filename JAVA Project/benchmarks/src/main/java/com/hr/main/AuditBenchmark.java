@@ -0,0 +1,56 @@
+package com.hr.main;
+
+import com.hr.main.SmartLeaveSystem.AuditChain;
+import com.hr.main.SmartLeaveSystem.LeaveRequest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+// Full-chain verification throughput, serial and on fork-join pools of growing size:
+//   java -cp benchmarks/target/benchmarks.jar com.hr.main.AuditBenchmark [blocks]
+public class AuditBenchmark {
+    public static void main(String[] args) throws IOException {
+        long n = args.length == 0 ? 2_000_000 : Long.parseLong(args[0]);
+        Path dir = Files.createTempDirectory("audit-bench");
+        Path file = dir.resolve("bench.chain");
+        int cores = Runtime.getRuntime().availableProcessors();
+        try (AuditChain chain = AuditChain.open(file, 0)) {
+            Random r = new Random(42);
+            String[] types = {"Sick", "Casual", "WFH", "Vacation"};
+            long t0 = System.nanoTime();
+            for (long i = 0; i < n; i++) {
+                LocalDate start = LocalDate.of(2025, 1, 1).plusDays(r.nextInt(365));
+                LeaveRequest req = new LeaveRequest((int) (10_000 + i / 2), 100 + r.nextInt(5000), start.toString(), start.toString(),
+                        types[r.nextInt(types.length)], "", 1);
+                chain.append(req, i % 2 == 0 ? AuditChain.APPLY : AuditChain.APPROVE, i % 2 == 0 ? null : "PENDING", i % 2 == 0 ? "PENDING" : "APPROVED");
+            }
+            System.out.printf("Built %d blocks (%.1f MB) in %d ms; %d core(s) available%n",
+                    n, Files.size(file) / 1e6, (System.nanoTime() - t0) / 1_000_000, cores);
+            System.out.printf("%-10s %10s %14s %8s%n", "threads", "ms", "blocks/s", "speedup");
+            long serial = bestOf3(chain, null);
+            System.out.printf("%-10s %10d %14d %8s%n", "serial", serial, n * 1000 / Math.max(1, serial), "1.00x");
+            for (int t = 1; t <= Math.max(cores, 4); t *= 2) {
+                ForkJoinPool pool = new ForkJoinPool(t);
+                long ms = bestOf3(chain, pool);
+                pool.shutdown();
+                System.out.printf("%-10d %10d %14d %7.2fx%n", t, ms, n * 1000 / Math.max(1, ms), (double) serial / Math.max(1, ms));
+            }
+        }
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".chk"));
+        Files.delete(file);
+        Files.delete(dir);
+    }
+    private static long bestOf3(AuditChain chain, ForkJoinPool pool) throws IOException {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 3; run++) {
+            AuditChain.Report rep = chain.verify(true, pool);
+            if (!rep.ok()) throw new IllegalStateException("bench chain failed at block " + rep.firstBad);
+            best = Math.min(best, rep.millis);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,69 @@
+package com.hr.main;
+
+import com.hr.main.SmartLeaveSystem.AuditChain;
+import com.hr.main.SmartLeaveSystem.LeaveRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Audit chain hashing and verification (formerly BlockchainSimulator.hashLeave/verifyIntegrity):
+// a full re-verification serially and on the common fork-join pool, and the per-request hash lookup
+// the exports use.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuditChainBenchmark {
+    @Param({"10000", "1000000"})
+    int blocks;
+
+    Path dir;
+    AuditChain chain;
+    List<LeaveRequest> requests;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("audit-jmh");
+        chain = AuditChain.open(dir.resolve("bench.chain"), 0);
+        requests = BenchData.requests(blocks, 1000, 7);
+        for (LeaveRequest r : requests) chain.append(r, AuditChain.APPLY, null, r.getStatus());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        chain.close();
+        try (var files = Files.list(dir)) {
+            for (Path f : (Iterable<Path>) files::iterator) Files.delete(f);
+        }
+        Files.delete(dir);
+    }
+
+    @Benchmark
+    public Object verifyFullSerial() throws IOException {
+        return check(chain.verify(true, null));
+    }
+
+    @Benchmark
+    public Object verifyFullParallel() throws IOException {
+        return check(chain.verify(true, ForkJoinPool.commonPool()));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public String hashOfRequest() throws IOException {
+        return chain.hashOf(requests.get(ThreadLocalRandom.current().nextInt(blocks)));
+    }
+
+    private static AuditChain.Report check(AuditChain.Report rep) {
+        if (!rep.ok()) throw new IllegalStateException("chain broken at block " + rep.firstBad);
+        return rep;
+    }
+}
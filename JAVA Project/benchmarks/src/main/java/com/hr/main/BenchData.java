@@ -0,0 +1,59 @@
+package com.hr.main;
+
+import com.hr.main.SmartLeaveSystem.Employee;
+import com.hr.main.SmartLeaveSystem.LeaveRequest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Deterministic fixtures shared by the benchmarks: employees 100..100+n-1 with emails e<id>@bench.io,
+// requests spread over one year with the usual type/status mix.
+final class BenchData {
+    static final String[] TYPES = {"Sick", "Casual", "WFH", "Vacation", "Others"};
+    static final String[] STATUSES = {"APPROVED", "APPROVED", "REJECTED", "PENDING"};
+    static final String[] REASONS = {"Fever", "Family function", "Remote work", "Trip", "Personal", "Doctor visit"};
+
+    private BenchData() { }
+
+    static String email(int empId) { return "e" + empId + "@bench.io"; }
+
+    // In-memory system (no journal or audit chain) holding n employees.
+    static SmartLeaveSystem systemWithEmployees(int n) {
+        SmartLeaveSystem sys = new SmartLeaveSystem();
+        for (int i = 0; i < n; i++)
+            sys.commitUser(new Employee(100 + i, "Employee " + i, email(100 + i), "pw" + i, SmartLeaveSystem.DEFAULT_LEAVES_PER_YEAR));
+        return sys;
+    }
+
+    static List<LeaveRequest> requests(int n, int employees, long seed) {
+        Random r = new Random(seed);
+        List<LeaveRequest> out = new ArrayList<>(n);
+        LocalDate base = LocalDate.of(2025, 1, 1);
+        for (int i = 0; i < n; i++) {
+            int days = 1 + r.nextInt(3);
+            int start = (int) base.toEpochDay() + r.nextInt(365);
+            LeaveRequest req = new LeaveRequest(1_000_000 + i, 100 + r.nextInt(employees), start, start + days - 1,
+                    TYPES[r.nextInt(TYPES.length)], REASONS[r.nextInt(REASONS.length)], days);
+            req.setStatus(STATUSES[r.nextInt(STATUSES.length)]);
+            out.add(req);
+        }
+        return out;
+    }
+
+    // Accepts and discards everything, so export benchmarks measure formatting and encoding only.
+    static final class NullChannel implements WritableByteChannel {
+        long bytes;
+        @Override public int write(ByteBuffer src) { int n = src.remaining(); src.position(src.limit()); bytes += n; return n; }
+        @Override public boolean isOpen() { return true; }
+        @Override public void close() { }
+    }
+
+    static SmartLeaveSystem.ExportSink nullSink() throws IOException {
+        return new SmartLeaveSystem.ExportSink(new NullChannel(), null);
+    }
+}
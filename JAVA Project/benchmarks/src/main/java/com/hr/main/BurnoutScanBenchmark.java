@@ -0,0 +1,55 @@
+package com.hr.main;
+
+import com.hr.main.SmartLeaveSystem.AIStressDetector;
+import com.hr.main.SmartLeaveSystem.LeaveRequest;
+import com.hr.main.SmartLeaveSystem.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Org-wide burnout scan: bounded top-50 heaps per team versus scoring and sorting everyone.
+// Ten requests per employee.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BurnoutScanBenchmark {
+    @Param({"1000", "100000"})
+    int employees;
+
+    User[] users;
+    Map<Integer, List<LeaveRequest>> history;
+    int today = (int) LocalDate.of(2025, 12, 31).toEpochDay();
+
+    @Setup
+    public void setup() {
+        SmartLeaveSystem sys = BenchData.systemWithEmployees(employees);
+        users = new User[employees];
+        for (int i = 0; i < employees; i++) users[i] = sys.getUserById(100 + i);
+        history = new HashMap<>();
+        for (LeaveRequest r : BenchData.requests(employees * 10, employees, 23))
+            history.computeIfAbsent(r.getEmpId(), k -> new ArrayList<>()).add(r);
+    }
+
+    @Benchmark
+    public Map<String, PriorityQueue<AIStressDetector.Risk>> topK() {
+        return ForkJoinPool.commonPool().invoke(new AIStressDetector.ScanTask(users, id -> history.getOrDefault(id, List.of()), 50, today, 0, users.length));
+    }
+
+    @Benchmark
+    public List<AIStressDetector.Risk> sortAll() {
+        List<AIStressDetector.Risk> all = new ArrayList<>(users.length);
+        for (User u : users) all.add(AIStressDetector.assess(u, history.getOrDefault(u.getEmpId(), List.of()), today));
+        all.sort(AIStressDetector.LEAST_AT_RISK.reversed());
+        return all.subList(0, Math.min(50, all.size()));
+    }
+}
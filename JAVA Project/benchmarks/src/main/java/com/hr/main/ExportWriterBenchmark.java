@@ -0,0 +1,48 @@
+package com.hr.main;
+
+import com.hr.main.SmartLeaveSystem.ExportSink;
+import com.hr.main.SmartLeaveSystem.LeaveRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The leave request CSV/TXT writers (formerly generateLeaveCSVString/TXTString) into a discarding channel.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportWriterBenchmark {
+    @Param({"1000", "100000"})
+    int requests;
+
+    SmartLeaveSystem sys;
+    List<LeaveRequest> list;
+
+    @Setup
+    public void setup() {
+        sys = BenchData.systemWithEmployees(1000);
+        list = BenchData.requests(requests, 1000, 42);
+    }
+
+    @Benchmark
+    public long leaveCSV() throws IOException {
+        try (ExportSink out = BenchData.nullSink()) {
+            sys.writeLeaveCSV(out, list);
+            out.finish();
+            return out.bytesWritten();
+        }
+    }
+
+    @Benchmark
+    public long leaveTXT() throws IOException {
+        try (ExportSink out = BenchData.nullSink()) {
+            sys.writeLeaveTXT(out, list);
+            out.finish();
+            return out.bytesWritten();
+        }
+    }
+}
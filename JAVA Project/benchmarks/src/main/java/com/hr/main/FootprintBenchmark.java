@@ -0,0 +1,33 @@
+package com.hr.main;
+
+import com.hr.main.SmartLeaveSystem.LeaveRequest;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Retained heap per LeaveRequest, built from fresh Strings the way input and CSV parsing produce them:
+//   java -Xmx4g -cp benchmarks/target/benchmarks.jar com.hr.main.FootprintBenchmark [requests]
+public class FootprintBenchmark {
+    public static void main(String[] args) {
+        int n = args.length == 0 ? 10_000_000 : Integer.parseInt(args[0]);
+        String[] types = {"Sick", "Casual", "WFH", "Vacation", "Others"};
+        String[] reasons = new String[1000];
+        for (int i = 0; i < reasons.length; i++) reasons[i] = "Reason text number " + i;
+        Random r = new Random(42);
+        Runtime rt = Runtime.getRuntime();
+        System.gc();
+        long before = rt.totalMemory() - rt.freeMemory();
+        List<LeaveRequest> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            LocalDate start = LocalDate.of(2025, 1, 1).plusDays(r.nextInt(365));
+            int days = 1 + r.nextInt(3);
+            list.add(new LeaveRequest(100 + r.nextInt(5000), start.toString(), start.plusDays(days - 1).toString(),
+                    new String(types[r.nextInt(types.length)]), new String(reasons[r.nextInt(reasons.length)]), days));
+        }
+        System.gc();
+        long used = rt.totalMemory() - rt.freeMemory() - before;
+        System.out.printf("%d requests: %.1f MB retained, %.1f bytes/request%n", list.size(), used / 1e6, used / (double) n);
+    }
+}
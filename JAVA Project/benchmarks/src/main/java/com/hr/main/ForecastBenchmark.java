@@ -0,0 +1,67 @@
+package com.hr.main;
+
+import com.hr.main.SmartLeaveSystem.ForecastFile;
+import com.hr.main.SmartLeaveSystem.LeavePatternPredictor;
+import com.hr.main.SmartLeaveSystem.LeaveProfiles;
+import com.hr.main.SmartLeaveSystem.LeaveRequest;
+import com.hr.main.SmartLeaveSystem.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Org-wide forecast (predictAll without the file write) and the per-employee lookup that
+// employee menu option 6 does against the written file. Ten requests per employee.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ForecastBenchmark {
+    @Param({"1000", "100000"})
+    int employees;
+
+    User[] emps;
+    int[][] counters;
+    LocalDate asOf = LocalDate.of(2025, 10, 1);
+    Path file;
+    int next;
+
+    @Setup
+    public void setup() throws IOException {
+        SmartLeaveSystem sys = BenchData.systemWithEmployees(employees);
+        LeaveProfiles profiles = new LeaveProfiles();
+        for (LeaveRequest r : BenchData.requests(employees * 10, employees, 17)) profiles.requestAdded(r);
+        emps = new User[employees];
+        counters = new int[employees][];
+        for (int i = 0; i < employees; i++) {
+            emps[i] = sys.getUserById(100 + i);
+            counters[i] = profiles.of(100 + i);
+        }
+        file = Files.createTempFile("forecast-bench", ".bin");
+        ForecastFile.write(file, forecastAll(), asOf);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public LeavePatternPredictor.Forecast[] forecastAll() {
+        LeavePatternPredictor.Forecast[] out = new LeavePatternPredictor.Forecast[emps.length];
+        ForkJoinPool.commonPool().invoke(new LeavePatternPredictor.ForecastTask(emps, counters, out, asOf, 0, emps.length));
+        return out;
+    }
+
+    @Benchmark
+    public LeavePatternPredictor.Forecast lookup() throws IOException {
+        next = (next + 7919) % employees;
+        return ForecastFile.lookup(file, 100 + next);
+    }
+}
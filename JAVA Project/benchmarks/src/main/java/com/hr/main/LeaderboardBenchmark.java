@@ -0,0 +1,63 @@
+package com.hr.main;
+
+import com.hr.main.SmartLeaveSystem.Leaderboard;
+import com.hr.main.SmartLeaveSystem.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Badge leaderboard: one score change plus a rank query on the order-statistic tree, versus
+// the same change followed by a scan of every user for the rank (what the award board did).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LeaderboardBenchmark {
+    @Param({"1000", "100000"})
+    int employees;
+
+    User[] users;
+    Leaderboard board;
+    int next;
+
+    @Setup
+    public void setup() {
+        SmartLeaveSystem sys = BenchData.systemWithEmployees(employees);
+        users = new User[employees];
+        board = new Leaderboard();
+        for (int i = 0; i < employees; i++) {
+            users[i] = sys.getUserById(100 + i);
+            users[i].setBadges(i * 7919 % 50);
+            board.put(users[i], users[i].getBadges());
+        }
+    }
+
+    private User bump() {
+        User u = users[next++ % users.length];
+        u.setBadges((u.getBadges() + 1) % 50);
+        return u;
+    }
+
+    @Benchmark
+    public int updateAndRank() {
+        User u = bump();
+        board.put(u, u.getBadges());
+        return board.rank(u.getEmpId());
+    }
+
+    @Benchmark
+    public int updateAndScan() {
+        User u = bump();
+        int above = 0;
+        for (User o : users) if (o.getBadges() > u.getBadges()) above++;
+        return above + 1;
+    }
+
+    @Benchmark
+    public List<User> top10() {
+        return board.top(10);
+    }
+}
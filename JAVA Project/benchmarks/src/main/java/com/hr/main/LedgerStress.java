@@ -0,0 +1,320 @@
+package com.hr.main;
+
+import com.hr.main.SmartLeaveSystem.Employee;
+import com.hr.main.SmartLeaveSystem.LeaveException;
+import com.hr.main.SmartLeaveSystem.LeaveRequest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.hr.main.SmartLeaveSystem.AUDIT_FILE;
+import static com.hr.main.SmartLeaveSystem.DEFAULT_LEAVES_PER_YEAR;
+import static com.hr.main.SmartLeaveSystem.JOURNAL_FILE;
+import static com.hr.main.SmartLeaveSystem.SNAPSHOT_FILE;
+
+// Hammers apply/edit/cancel/approve/reject from many threads, then checks the ledger invariants:
+// balance = allowance - days of live requests and never negative, no overlapping live requests
+// per employee, no day over the team limit, unique ids, and dashboard counters matching a recount.
+// Phase 1: each thread owns a team of employees and models their calendars, balances and the
+// team's approved days, so it only issues operations that should succeed (an employee whose
+// allowance is used up is replaced by a new hire). Threads still share the commit gate, store
+// lock, journal and lock stripes. Any refusal, or a ledger that disagrees with the model, is a
+// violation.
+// Phase 2: every thread hammers the same few employees of one team with random submit, cancel
+// and decide calls over a window of days that moves along with the run, so they race on the same
+// employee and team stripes, requests and days. Refusals are expected there; only the model-free
+// invariants are checked.
+//   java -cp benchmarks/target/benchmarks.jar com.hr.main.LedgerStress [threads] [opsPerThread] [employees] [journal]
+// "journal" runs against a store in a temp directory instead of in memory.
+public class LedgerStress {
+    static final LocalDate BASE = LocalDate.of(2027, 1, 1);
+    static final int WINDOW = 3650; // requests fall in the ten years from BASE
+    static final String[] TYPES = {"Sick", "Casual", "WFH", "Vacation"};
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int ops = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int employees = Math.max(threads, args.length > 2 ? Integer.parseInt(args[2]) : 50);
+        boolean onDisk = args.length > 3 && args[3].equals("journal");
+        SmartLeaveSystem sys = new SmartLeaveSystem();
+        Path dir = null;
+        if (onDisk) {
+            dir = Files.createTempDirectory("ledger-stress");
+            if (!sys.openStore(dir.resolve(SNAPSHOT_FILE), dir.resolve(JOURNAL_FILE), dir.resolve(AUDIT_FILE))) System.exit(2);
+        }
+        Lane[] lanes = new Lane[threads];
+        for (int t = 0; t < threads; t++) {
+            lanes[t] = new Lane(sys, t, new Random(42 + t));
+            for (int i = t; i < employees; i += threads) lanes[t].hire();
+        }
+        Thread[] pool = new Thread[threads];
+        long t0 = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            Lane lane = lanes[t];
+            pool[t] = new Thread(() -> { for (int i = 0; i < ops; i++) lane.step(); });
+            pool[t].start();
+        }
+        for (Thread t : pool) t.join();
+        long millis = Math.max(1, (System.nanoTime() - t0) / 1_000_000);
+        long ok = 0, hired = 0;
+        List<String> problems = new ArrayList<>();
+        for (Lane lane : lanes) {
+            ok += lane.ok;
+            hired += lane.emps.size();
+            problems.addAll(lane.refusals);
+        }
+        System.out.printf("Own teams: %d threads x %d ops: %d committed, %d refused in %d ms (%d ops/s), %d employees%n",
+                threads, ops, ok, problems.size(), millis, ok * 1000 / millis, hired);
+
+        Shared shared = new Shared(sys, ops);
+        t0 = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            Random rnd = new Random(1042 + t);
+            pool[t] = new Thread(() -> { for (int i = 0; i < ops; i++) shared.step(rnd, i); });
+            pool[t].start();
+        }
+        for (Thread t : pool) t.join();
+        millis = Math.max(1, (System.nanoTime() - t0) / 1_000_000);
+        System.out.printf("Shared team: %d threads x %d ops on %d employees: %d committed, %d refused in %d ms (%d ops/s)%n",
+                threads, ops, shared.emps.size(), shared.ok.get(), shared.refused.get(), millis, shared.ok.get() * 1000 / millis);
+
+        problems.addAll(check(sys, lanes, shared));
+        int live = sys.read(() -> sys.requests.size());
+        hired += shared.emps.size();
+        if (onDisk) {
+            sys.closeStore();
+            for (Path f : Files.list(dir).toArray(Path[]::new)) Files.delete(f);
+            Files.delete(dir);
+        }
+        if (problems.isEmpty()) {
+            System.out.println("Invariants hold: " + live + " requests, " + hired + " balances.");
+        } else {
+            for (String p : problems.subList(0, Math.min(20, problems.size()))) System.out.println("VIOLATION: " + p);
+            System.out.println(problems.size() + " violation(s).");
+            System.exit(1);
+        }
+    }
+
+    // One thread's team and what it expects the system to hold for it: the days each employee has
+    // on live requests (so also their balance), the pending requests, and approved absences per day.
+    static final class Lane {
+        final SmartLeaveSystem sys;
+        final String team;
+        final int firstId;
+        final Random rnd;
+        final List<Employee> emps = new ArrayList<>();
+        final List<BitSet> busy = new ArrayList<>();
+        final Map<Integer, Integer> index = new HashMap<>(); // empId -> position in emps
+        final List<LeaveRequest> pending = new ArrayList<>();
+        final int[] out = new int[WINDOW];
+        final List<String> refusals = new ArrayList<>();
+        final int limit;
+        long ok;
+
+        Lane(SmartLeaveSystem sys, int lane, Random rnd) {
+            this.sys = sys;
+            this.team = "Stress " + lane;
+            this.firstId = 10_000 + lane * 1_000_000;
+            this.rnd = rnd;
+            this.limit = sys.teamLimit(team);
+        }
+
+        int hire() {
+            int i = emps.size();
+            Employee emp = new Employee(firstId + i, "Emp " + team + "/" + i, "e" + (firstId + i) + "@stress.test", "pw", DEFAULT_LEAVES_PER_YEAR);
+            emp.setTeam(team);
+            sys.commitUser(emp);
+            emps.add(emp);
+            busy.add(new BitSet(WINDOW));
+            index.put(emp.getEmpId(), i);
+            return i;
+        }
+
+        // 40% apply, 15% edit, 10% cancel, 35% decide; falls back to applying when nothing is pending.
+        void step() {
+            int op = rnd.nextInt(100);
+            try {
+                if (op < 40 || pending.isEmpty()) apply();
+                else if (op < 55) edit();
+                else if (op < 65) cancel();
+                else decide();
+                ok++;
+            } catch (LeaveException e) {
+                refusals.add("refused: " + e.getMessage());
+            }
+        }
+
+        private void apply() {
+            int i = rnd.nextInt(emps.size());
+            if (left(i) == 0) i = emps.size() - 1;
+            if (left(i) == 0) i = hire();
+            submit(i, freeDay(busy.get(i)), null);
+        }
+        private void edit() {
+            LeaveRequest r = takePending();
+            int i = index.get(r.getEmpId());
+            busy.get(i).clear(day(r.startDay()), day(r.endDay()) + 1); // its own days and balance may be reused
+            submit(i, freeDay(busy.get(i)), r);
+        }
+        private void submit(int i, int from, LeaveRequest replacing) {
+            BitSet days = busy.get(i);
+            int next = days.nextSetBit(from);
+            int len = Math.min(Math.min((next < 0 ? WINDOW : next) - from, left(i)), 1 + rnd.nextInt(5));
+            days.set(from, from + len);
+            pending.add(sys.submitLeave(emps.get(i), BASE.plusDays(from), BASE.plusDays(from + len - 1),
+                    TYPES[rnd.nextInt(TYPES.length)], replacing == null ? "stress" : "edit", replacing));
+        }
+        private void cancel() {
+            LeaveRequest r = takePending();
+            int i = index.get(r.getEmpId());
+            busy.get(i).clear(day(r.startDay()), day(r.endDay()) + 1);
+            sys.cancelLeave(emps.get(i), r);
+        }
+        // Approves 70% of decisions when the team has room on every day, otherwise rejects.
+        private void decide() {
+            LeaveRequest r = takePending();
+            boolean approve = rnd.nextInt(10) < 7;
+            for (int d = day(r.startDay()); approve && d <= day(r.endDay()); d++) approve = out[d] < limit;
+            if (approve) for (int d = day(r.startDay()); d <= day(r.endDay()); d++) out[d]++;
+            else busy.get(index.get(r.getEmpId())).clear(day(r.startDay()), day(r.endDay()) + 1);
+            sys.decideLeave(r, approve);
+        }
+
+        private int left(int i) { return DEFAULT_LEAVES_PER_YEAR - busy.get(i).cardinality(); }
+        private LeaveRequest takePending() {
+            int k = rnd.nextInt(pending.size());
+            LeaveRequest r = pending.get(k);
+            pending.set(k, pending.get(pending.size() - 1));
+            pending.remove(pending.size() - 1);
+            return r;
+        }
+        // A random day the employee has free; with at most a year's allowance taken there are plenty.
+        private int freeDay(BitSet days) {
+            int from;
+            do from = rnd.nextInt(WINDOW); while (days.get(from));
+            return from;
+        }
+        static int day(int epochDay) { return epochDay - (int) BASE.toEpochDay(); }
+    }
+
+    // A handful of employees in one team that every thread submits, cancels and decides for at
+    // random, without a model: whatever the interleaving, the ledger has to stay consistent. An
+    // employee close to the end of their allowance is swapped for a new hire so refusals come from
+    // the races, not from everyone having run out.
+    static final class Shared {
+        static final int EMPLOYEES = 4, SPAN = 60;
+        final SmartLeaveSystem sys;
+        final int ops;
+        final AtomicReferenceArray<Employee> slots = new AtomicReferenceArray<>(EMPLOYEES);
+        final List<Employee> emps = new ArrayList<>(); // every hire, guarded by this
+        final AtomicLong ok = new AtomicLong(), refused = new AtomicLong();
+
+        Shared(SmartLeaveSystem sys, int ops) {
+            this.sys = sys;
+            this.ops = ops;
+            for (int s = 0; s < EMPLOYEES; s++) slots.set(s, hire());
+        }
+
+        private synchronized Employee hire() {
+            int id = 1_000_000_000 + emps.size(); // clear of the lanes' ids
+            Employee emp = new Employee(id, "Emp Shared/" + emps.size(), "s" + id + "@stress.test", "pw", DEFAULT_LEAVES_PER_YEAR);
+            emp.setTeam("Stress shared");
+            sys.commitUser(emp);
+            emps.add(emp);
+            return emp;
+        }
+        private synchronized Employee replace(int s, Employee tired) {
+            if (slots.get(s) == tired) slots.set(s, hire());
+            return slots.get(s);
+        }
+
+        // 40% submit, 20% cancel, 40% decide (70% of decisions approve). Step i of ops draws its
+        // days from a SPAN-day window that slides from BASE to the end of the range.
+        void step(Random rnd, int i) {
+            int s = rnd.nextInt(EMPLOYEES);
+            Employee emp = slots.get(s);
+            if (emp.getLeaveBalance() < 5) emp = replace(s, emp);
+            int op = rnd.nextInt(100);
+            try {
+                if (op < 40) {
+                    int from = (int) ((long) i * (WINDOW - SPAN - 5) / ops) + rnd.nextInt(SPAN);
+                    sys.submitLeave(emp, BASE.plusDays(from), BASE.plusDays(from + rnd.nextInt(5)),
+                            TYPES[rnd.nextInt(TYPES.length)], "shared", null);
+                } else {
+                    Employee owner = emp;
+                    List<LeaveRequest> pending = sys.read(() -> new ArrayList<>(sys.requestIndex.forEmployee(owner.getEmpId(), "PENDING")));
+                    if (pending.isEmpty()) {
+                        refused.incrementAndGet();
+                        return;
+                    }
+                    LeaveRequest r = pending.get(rnd.nextInt(pending.size()));
+                    if (op < 60) sys.cancelLeave(emp, r);
+                    else sys.decideLeave(r, rnd.nextInt(10) < 7);
+                }
+                ok.incrementAndGet();
+            } catch (LeaveException e) {
+                refused.incrementAndGet();
+            }
+        }
+    }
+
+    private static List<String> check(SmartLeaveSystem sys, Lane[] lanes, Shared shared) {
+        return sys.read(() -> {
+            List<String> problems = new ArrayList<>(sys.stats.verify(sys.users, sys.requests.values()));
+            Map<Integer, List<LeaveRequest>> live = new HashMap<>();
+            Map<String, int[]> outPerDay = new HashMap<>();
+            Set<Integer> ids = new HashSet<>();
+            for (LeaveRequest r : sys.requests.values()) {
+                if (!ids.add(r.getReqId())) problems.add("duplicate ReqID " + r.getReqId());
+                if (sys.requestIndex.byReqId(r.getReqId()) != r) problems.add("index out of step for " + r.getReqId());
+                if (r.statusCode() == LeaveRequest.REJECTED) continue;
+                live.computeIfAbsent(r.getEmpId(), k -> new ArrayList<>()).add(r);
+                if (r.statusCode() == LeaveRequest.APPROVED) {
+                    int[] out = outPerDay.computeIfAbsent(sys.teamOf(r.getEmpId()), k -> new int[WINDOW]);
+                    for (int d = r.startDay(); d <= r.endDay(); d++) out[Lane.day(d)]++;
+                }
+            }
+            for (Map.Entry<String, int[]> e : outPerDay.entrySet()) {
+                int limit = sys.teamLimit(e.getKey());
+                int[] out = e.getValue();
+                for (int d = 0; d < out.length; d++)
+                    if (out[d] > limit) problems.add(out[d] + " of " + e.getKey() + " out on " + BASE.plusDays(d));
+            }
+            for (Lane lane : lanes)
+                for (int i = 0; i < lane.emps.size(); i++) {
+                    int used = checkLedger(lane.emps.get(i), live, problems);
+                    if (used != lane.busy.get(i).cardinality())
+                        problems.add(lane.emps.get(i).getName() + ": " + used + " days on live requests, the workload expected " + lane.busy.get(i).cardinality());
+                }
+            for (Employee emp : shared.emps) checkLedger(emp, live, problems);
+            return problems;
+        });
+    }
+
+    // Balance = allowance - live days and never negative, no overlapping live requests; returns the live days.
+    private static int checkLedger(Employee emp, Map<Integer, List<LeaveRequest>> live, List<String> problems) {
+        List<LeaveRequest> mine = live.getOrDefault(emp.getEmpId(), new ArrayList<>());
+        int used = 0;
+        for (LeaveRequest r : mine) used += r.getRequestedDays();
+        if (emp.getLeaveBalance() != emp.getTotalLeavesAllowed() - used)
+            problems.add(emp.getName() + ": balance " + emp.getLeaveBalance() + ", expected " + (emp.getTotalLeavesAllowed() - used));
+        if (emp.getLeaveBalance() < 0) problems.add(emp.getName() + ": negative balance " + emp.getLeaveBalance());
+        mine.sort(Comparator.comparingInt(LeaveRequest::startDay));
+        for (int k = 1; k < mine.size(); k++)
+            if (mine.get(k).startDay() <= mine.get(k - 1).endDay())
+                problems.add(emp.getName() + ": #" + mine.get(k - 1).getReqId() + " overlaps #" + mine.get(k).getReqId());
+        return used;
+    }
+}
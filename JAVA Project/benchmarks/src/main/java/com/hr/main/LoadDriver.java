@@ -0,0 +1,162 @@
+package com.hr.main;
+
+import com.hr.main.SmartLeaveSystem.AuditChain;
+import com.hr.main.SmartLeaveSystem.Employee;
+import com.hr.main.SmartLeaveSystem.ExportSink;
+import com.hr.main.SmartLeaveSystem.LeaveException;
+import com.hr.main.SmartLeaveSystem.LeaveRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import static com.hr.main.SmartLeaveSystem.AUDIT_FILE;
+import static com.hr.main.SmartLeaveSystem.JOURNAL_FILE;
+import static com.hr.main.SmartLeaveSystem.SNAPSHOT_FILE;
+
+// Replays a mixed workload headlessly against a generated organisation and reports latency
+// percentiles and throughput per operation. Runs on a store in a temp directory (journal,
+// fsync and audit chain included) unless "memory" is given.
+//   java -cp benchmarks/target/benchmarks.jar com.hr.main.LoadDriver [employees] [requests] [ops] [threads] [seed] [memory]
+public class LoadDriver {
+    static final String[] OPS = {"apply", "approve", "history", "export", "verify"};
+    private static final int[] OP_WEIGHTS = {35, 20, 30, 10, 5};
+
+    // Latencies of one operation on one thread, in nanoseconds.
+    static final class Samples {
+        long[] v = new long[1024];
+        int n;
+        long refused;
+        void add(long nanos) {
+            if (n == v.length) v = Arrays.copyOf(v, n * 2);
+            v[n++] = nanos;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int employees = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int ops = args.length > 2 ? Integer.parseInt(args[2]) : 50_000;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42;
+        boolean onDisk = !(args.length > 5 && args[5].equals("memory"));
+
+        Path dir = Files.createTempDirectory("load-driver");
+        SmartLeaveSystem sys = new SmartLeaveSystem();
+        if (onDisk && !sys.openStore(dir.resolve(SNAPSHOT_FILE), dir.resolve(JOURNAL_FILE), dir.resolve(AUDIT_FILE))) System.exit(2);
+        WorkloadGenerator gen = new WorkloadGenerator(seed, employees, requests);
+        long t0 = System.nanoTime();
+        gen.populate(sys, dir);
+        System.out.printf("Generated %d employees, %d managers, %d admins, %d requests (seed %d) in %d ms%n",
+                gen.employees, gen.managers, gen.admins, requests, seed, (System.nanoTime() - t0) / 1_000_000);
+
+        Samples[][] samples = new Samples[threads][OPS.length];
+        Thread[] pool = new Thread[threads];
+        int perThread = ops / threads;
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            Samples[] mine = samples[t];
+            for (int o = 0; o < OPS.length; o++) mine[o] = new Samples();
+            Random rnd = new Random(seed * 31 + t);
+            pool[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    int op = WorkloadGenerator.weighted(rnd, OP_WEIGHTS);
+                    if (op == 4 && sys.chain == null) op = 2; // nothing to verify in memory
+                    long begin = System.nanoTime();
+                    try {
+                        if (!run(sys, gen, rnd, op)) continue;
+                    } catch (LeaveException e) {
+                        mine[op].refused++;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    mine[op].add(System.nanoTime() - begin);
+                }
+            });
+            pool[t].start();
+        }
+        for (Thread t : pool) t.join();
+        long wallNanos = System.nanoTime() - start;
+
+        report(samples, wallNanos, threads);
+        if (onDisk) sys.closeStore();
+        try (var files = Files.list(dir)) {
+            for (Path f : (Iterable<Path>) files::iterator) Files.delete(f);
+        }
+        Files.delete(dir);
+    }
+
+    // One operation as a user would trigger it; false if there was nothing to do (no sample).
+    private static boolean run(SmartLeaveSystem sys, WorkloadGenerator gen, Random rnd, int op) throws IOException {
+        Employee emp = (Employee) sys.read(() -> sys.getUserById(WorkloadGenerator.employeeId(rnd.nextInt(gen.employees))));
+        switch (op) {
+            case 0: { // apply for next year's leave
+                int type = gen.pickType(rnd);
+                LocalDate s = gen.pickStart(rnd, type, gen.yearStart.getYear() + 1);
+                sys.submitLeave(emp, s, s.plusDays(WorkloadGenerator.pickDays(rnd, type) - 1),
+                        WorkloadGenerator.TYPES[type], gen.pickReason(rnd, type), null);
+                return true;
+            }
+            case 1: { // a manager decides one of the employee's pending requests
+                LeaveRequest r = sys.read(() -> {
+                    Collection<LeaveRequest> pending = sys.requestIndex.forEmployee(emp.getEmpId(), "PENDING");
+                    return pending.isEmpty() ? null : pending.iterator().next();
+                });
+                if (r == null) return false;
+                sys.decideLeave(r, rnd.nextInt(10) < 8);
+                return true;
+            }
+            case 2: // history table rows
+                sys.read(() -> {
+                    List<String[]> rows = new ArrayList<>();
+                    for (LeaveRequest r : sys.requestIndex.forEmployee(emp.getEmpId()))
+                        rows.add(new String[]{"" + r.getReqId(), r.getType(), r.getStart(), r.getEnd(), "" + r.getRequestedDays(), r.getStatus(), r.getComments()});
+                    return rows;
+                });
+                return true;
+            case 3: // the employee's request export
+                sys.store.readLock().lock();
+                try (ExportSink out = new ExportSink(Channels.newChannel(OutputStream.nullOutputStream()), null)) {
+                    sys.writeLeaveCSV(out, sys.requestIndex.forEmployee(emp.getEmpId()));
+                } finally {
+                    sys.store.readLock().unlock();
+                }
+                return true;
+            default: { // incremental audit chain verification
+                AuditChain.Report rep = sys.chain.verify(false, null);
+                if (!rep.ok()) throw new IllegalStateException("audit chain broken at block " + rep.firstBad);
+                return true;
+            }
+        }
+    }
+
+    private static void report(Samples[][] samples, long wallNanos, int threads) {
+        double wallSec = wallNanos / 1e9;
+        System.out.printf("%d threads, %.2f s%n", threads, wallSec);
+        System.out.printf("%-9s %9s %8s %10s %10s %10s %10s%n", "op", "count", "refused", "p50 us", "p99 us", "max us", "ops/s");
+        long total = 0;
+        for (int o = 0; o < OPS.length; o++) {
+            int n = 0;
+            long refused = 0;
+            for (Samples[] t : samples) { n += t[o].n; refused += t[o].refused; }
+            if (n == 0) continue;
+            long[] all = new long[n];
+            int k = 0;
+            for (Samples[] t : samples) { System.arraycopy(t[o].v, 0, all, k, t[o].n); k += t[o].n; }
+            Arrays.sort(all);
+            total += n;
+            System.out.printf("%-9s %9d %8d %10.1f %10.1f %10.1f %10.0f%n", OPS[o], n, refused,
+                    all[(int) ((n - 1) * 0.50)] / 1e3, all[(int) ((n - 1) * 0.99)] / 1e3, all[n - 1] / 1e3, n / wallSec);
+        }
+        System.out.printf("%-9s %9d %8s %10s %10s %10s %10.0f%n", "total", total, "", "", "", "", total / wallSec);
+    }
+}
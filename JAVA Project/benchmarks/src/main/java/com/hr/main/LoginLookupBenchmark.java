@@ -0,0 +1,43 @@
+package com.hr.main;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// roleLogin's credential lookup and getUserById, both hash lookups that should stay flat as the user count grows.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoginLookupBenchmark {
+    @Param({"1000", "100000"})
+    int users;
+
+    SmartLeaveSystem sys;
+    String[] emails, passwords;
+
+    @Setup
+    public void setup() {
+        sys = BenchData.systemWithEmployees(users);
+        emails = new String[users];
+        passwords = new String[users];
+        for (int i = 0; i < users; i++) {
+            emails[i] = BenchData.email(100 + i).toUpperCase(); // lookups are case-insensitive
+            passwords[i] = "pw" + i;
+        }
+    }
+
+    @Benchmark
+    public Object authenticate() {
+        int i = ThreadLocalRandom.current().nextInt(users);
+        return sys.authenticate(emails[i], passwords[i]);
+    }
+
+    @Benchmark
+    public Object getUserById() {
+        return sys.getUserById(100 + ThreadLocalRandom.current().nextInt(users));
+    }
+}
@@ -0,0 +1,37 @@
+package com.hr.main;
+
+import com.hr.main.SmartLeaveSystem.LeavePatternPredictor;
+import com.hr.main.SmartLeaveSystem.LeaveProfiles;
+import com.hr.main.SmartLeaveSystem.LeaveRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// One employee's forecast from the running counters, as employee menu option 6 computes it when
+// the nightly file has no entry. The profile is built once; its cost must not grow with history.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PredictorBenchmark {
+    @Param({"10", "1000", "100000"})
+    int history;
+
+    int[] profile;
+    LocalDate asOf = LocalDate.of(2025, 10, 1);
+
+    @Setup
+    public void setup() {
+        LeaveProfiles profiles = new LeaveProfiles();
+        for (LeaveRequest r : BenchData.requests(history, 1, 3)) profiles.requestAdded(r);
+        profile = profiles.of(100);
+    }
+
+    @Benchmark
+    public String predict() {
+        return LeavePatternPredictor.forecast(100, profile, asOf).describe();
+    }
+}
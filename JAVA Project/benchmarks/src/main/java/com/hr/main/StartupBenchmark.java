@@ -0,0 +1,82 @@
+package com.hr.main;
+
+import com.hr.main.SmartLeaveSystem.Employee;
+import com.hr.main.SmartLeaveSystem.Journal;
+import com.hr.main.SmartLeaveSystem.LeaveRequest;
+import com.hr.main.SmartLeaveSystem.Snapshot;
+import com.hr.main.SmartLeaveSystem.User;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.hr.main.SmartLeaveSystem.DEFAULT_LEAVES_PER_YEAR;
+import static com.hr.main.SmartLeaveSystem.encodeRecord;
+import static com.hr.main.SmartLeaveSystem.writeRequest;
+import static com.hr.main.SmartLeaveSystem.writeUser;
+
+// Times snapshot load against full journal replay for growing datasets:
+//   java -cp benchmarks/target/benchmarks.jar com.hr.main.StartupBenchmark [requests...]
+public class StartupBenchmark {
+    public static void main(String[] args) throws IOException {
+        int[] sizes = args.length == 0 ? new int[]{10_000, 100_000, 1_000_000} : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+        Path dir = Files.createTempDirectory("leave-bench");
+        System.out.printf("%-10s %-8s %12s %12s %12s %12s%n", "requests", "users", "snap MB", "snap ms", "wal MB", "replay ms");
+        for (int n : sizes) {
+            Random r = new Random(42);
+            int nUsers = Math.max(10, n / 20);
+            List<byte[]> records = new ArrayList<>();
+            SmartLeaveSystem src = new SmartLeaveSystem();
+            String[] types = {"Sick", "Casual", "WFH", "Vacation"};
+            for (int i = 0; i < nUsers; i++) {
+                User u = new Employee(10_000 + i, "Employee " + i, "emp" + i + "@corp.example", "pw" + i, DEFAULT_LEAVES_PER_YEAR);
+                records.add(encodeRecord(Journal.USER, out -> writeUser(out, u)));
+                src.addUser(u);
+            }
+            for (int i = 0; i < n; i++) {
+                LocalDate start = LocalDate.of(2025, 1, 1).plusDays(r.nextInt(365));
+                int days = 1 + r.nextInt(3);
+                LeaveRequest req = new LeaveRequest(10_000 + r.nextInt(nUsers), start.toString(), start.plusDays(days - 1).toString(),
+                        types[r.nextInt(types.length)], "Generated request " + i, days);
+                records.add(encodeRecord(Journal.APPLY, out -> writeRequest(out, req)));
+                src.doApply(req);
+                int roll = r.nextInt(10);
+                if (roll < 7) {
+                    records.add(encodeRecord(Journal.APPROVE, out -> out.writeInt(req.getReqId())));
+                    src.setStatus(req, "APPROVED");
+                } else if (roll < 9) {
+                    records.add(encodeRecord(Journal.REJECT, out -> out.writeInt(req.getReqId())));
+                    src.doReject(req);
+                }
+            }
+            Path snap = dir.resolve("bench_" + n + ".bin"), wal = dir.resolve("bench_" + n + ".wal");
+            Snapshot.write(snap, 1, src);
+            try (Journal j = Journal.open(wal, 1, in -> { })) {
+                for (int i = 0; i < records.size(); i += 10_000)
+                    j.appendAll(records.subList(i, Math.min(records.size(), i + 10_000)));
+            }
+            records = null;
+            src = null;
+
+            long snapMs = Long.MAX_VALUE, walMs = Long.MAX_VALUE;
+            for (int run = 0; run < 3; run++) { // best of 3, the first pays for JIT and page cache
+                long t0 = System.nanoTime();
+                Snapshot.read(snap, new SmartLeaveSystem());
+                snapMs = Math.min(snapMs, (System.nanoTime() - t0) / 1_000_000);
+                SmartLeaveSystem replayed = new SmartLeaveSystem();
+                t0 = System.nanoTime();
+                Journal.open(wal, 1, replayed::replayRecord).close();
+                walMs = Math.min(walMs, (System.nanoTime() - t0) / 1_000_000);
+            }
+            System.out.printf("%-10d %-8d %12.1f %12d %12.1f %12d%n", n, nUsers, Files.size(snap) / 1e6, snapMs, Files.size(wal) / 1e6, walMs);
+            Files.delete(snap);
+            Files.delete(wal);
+        }
+        Files.delete(dir);
+    }
+}
@@ -0,0 +1,49 @@
+package com.hr.main;
+
+import com.hr.main.SmartLeaveSystem.LeaveRequest;
+import com.hr.main.SmartLeaveSystem.StatsStore;
+import com.hr.main.SmartLeaveSystem.User;
+import com.hr.main.SmartLeaveSystem.UserDirectory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// orgStatsTable-style aggregation: reading the running counters versus the full recount that
+// "Verify Dashboard Counters" (and the old orgStatsTable) does.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatsBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int requests;
+
+    UserDirectory users;
+    List<LeaveRequest> list;
+    StatsStore stats;
+
+    @Setup
+    public void setup() {
+        SmartLeaveSystem sys = BenchData.systemWithEmployees(1000);
+        users = new UserDirectory();
+        for (int i = 0; i < 1000; i++) users.add(sys.getUserById(100 + i));
+        list = BenchData.requests(requests, 1000, 11);
+        stats = new StatsStore();
+        for (User u : users) stats.userAdded(u);
+        for (LeaveRequest r : list) stats.requestAdded(r);
+    }
+
+    @Benchmark
+    public long counters() {
+        return stats.count("APPROVED") + stats.count("REJECTED") + stats.count("PENDING")
+                + stats.employeeLeavesTaken();
+    }
+
+    @Benchmark
+    public Object fullRecount() {
+        return stats.verify(users, list);
+    }
+}
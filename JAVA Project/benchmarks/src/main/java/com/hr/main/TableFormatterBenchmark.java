@@ -0,0 +1,56 @@
+package com.hr.main;
+
+import com.hr.main.SmartLeaveSystem.TableFormatter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+// Cell padding/truncation and one full 20-row page of the request table (printed to a discarding stream).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableFormatterBenchmark {
+    @Param({"8", "20"})
+    int width;
+
+    final String shortCell = "WFH";
+    final String longCell = "Family function out of town for the whole week";
+    final String[] row = {"1000001", "101", "2025-03-04", "2025-03-06", "3", "Vacation", "APPROVED", "ok", "Trip with family"};
+    TableFormatter table;
+    PrintStream stdout;
+
+    @Setup
+    public void setup() {
+        table = new TableFormatter(new String[]{"ReqID", "EmpID", "Start", "End", "Days", "Type", "Status", "Capacity", "Comments"},
+                new int[]{6, 6, 10, 10, 4, 8, 8, 8, width});
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public String fitShort() {
+        return TableFormatter.fit(shortCell, width);
+    }
+
+    @Benchmark
+    public String fitLong() {
+        return TableFormatter.fit(longCell, width);
+    }
+
+    @Benchmark
+    public void page() {
+        table.header();
+        for (int i = 0; i < TableFormatter.PAGE_ROWS; i++) table.row(row);
+        table.footer().flush();
+    }
+}
@@ -0,0 +1,168 @@
+package com.hr.main;
+
+import com.hr.main.SmartLeaveSystem.Admin;
+import com.hr.main.SmartLeaveSystem.BulkImporter;
+import com.hr.main.SmartLeaveSystem.ExportSink;
+import com.hr.main.SmartLeaveSystem.Manager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.Random;
+
+import static com.hr.main.SmartLeaveSystem.DEFAULT_LEAVES_PER_YEAR;
+import static com.hr.main.SmartLeaveSystem.TEAM_DAILY_CAPACITY;
+
+// Seeded synthetic organisation: employees with a year of leave history (CSV files in the bulk
+// import format) plus managers and admins. Same seed and sizes, same files. Mixes follow what the
+// demo data and exports show: WFH and sick leave dominate, vacations are long and cluster in
+// summer and December, sick leave peaks in winter, most leave starts on a weekday, older
+// requests are decided (mostly approved) and recent ones are still pending. Requests that
+// would overdraw the yearly allowance, overlap the employee's own leave or put more than the
+// default limit of a team (TEAM_SIZE employees) out on one day are rejected.
+//   java -cp benchmarks/target/benchmarks.jar com.hr.main.WorkloadGenerator <dir> [employees] [requests] [seed]
+public class WorkloadGenerator {
+    static final String[] TYPES = {"Sick", "Casual", "WFH", "Vacation"};
+    private static final int[] TYPE_WEIGHTS = {25, 25, 35, 15};
+    private static final int[][] MONTH_WEIGHTS = {
+            {14, 13, 9, 7, 6, 5, 5, 5, 7, 8, 10, 11},     // Sick
+            {8, 8, 8, 9, 9, 8, 8, 8, 8, 9, 8, 9},         // Casual
+            {8, 8, 8, 8, 8, 9, 9, 9, 8, 8, 8, 9},         // WFH
+            {3, 3, 5, 7, 7, 11, 16, 16, 6, 5, 4, 17},     // Vacation
+    };
+    private static final String[][] REASONS = {
+            {"Fever", "Flu", "Doctor visit", "Migraine", "Food poisoning"},
+            {"Family function", "Personal work", "Bank work", "House shifting"},
+            {"Remote work", "Internet install at home", "Waiting for delivery", "Focus day"},
+            {"Trip", "Family vacation", "Wedding", "Hometown visit"},
+    };
+
+    final long seed;
+    final int employees, managers, admins, requests;
+    final LocalDate yearStart, today;
+    final Random rnd;
+
+    WorkloadGenerator(long seed, int employees, int requests) {
+        this.seed = seed;
+        this.employees = employees;
+        this.managers = Math.max(1, employees / 50);
+        this.admins = Math.max(1, employees / 1000);
+        this.requests = requests;
+        this.yearStart = LocalDate.of(2025, 1, 1);
+        this.today = LocalDate.of(2025, 11, 15); // requests starting after this are mostly still pending
+        this.rnd = new Random(seed);
+    }
+    static final int TEAM_SIZE = 10;
+    static int employeeId(int i) { return 100_000 + i; }
+    static String team(int i) { return "Team " + (i / TEAM_SIZE); }
+    static int managerId(int i) { return 200_000 + i; }
+    static int adminId(int i) { return 300_000 + i; }
+
+    int pickType(Random r) { return weighted(r, TYPE_WEIGHTS); }
+    // Calendar days, as the system counts them.
+    static int pickDays(Random r, int type) {
+        switch (type) {
+            case 0: return r.nextInt(10) == 0 ? 3 + r.nextInt(3) : 1 + r.nextInt(2);
+            case 1: return 1 + r.nextInt(2);
+            case 2: return r.nextInt(5) == 0 ? 2 + r.nextInt(2) : 1;
+            default: return 3 + r.nextInt(8);
+        }
+    }
+    // A start date in the given year: month by seasonality, weekend starts mostly moved to Monday.
+    LocalDate pickStart(Random r, int type, int year) {
+        int month = weighted(r, MONTH_WEIGHTS[type]) + 1;
+        LocalDate d = LocalDate.of(year, month, 1);
+        d = d.plusDays(r.nextInt(d.lengthOfMonth()));
+        int dow = d.getDayOfWeek().getValue();
+        if (dow >= 6 && r.nextInt(10) < 8) d = d.plusDays(8 - dow);
+        return d;
+    }
+    String pickReason(Random r, int type) { return REASONS[type][r.nextInt(REASONS[type].length)]; }
+    static int weighted(Random r, int[] weights) {
+        int total = 0;
+        for (int w : weights) total += w;
+        int x = r.nextInt(total);
+        for (int i = 0; i < weights.length; i++) if ((x -= weights[i]) < 0) return i;
+        return weights.length - 1;
+    }
+
+    // Writes users.csv and leave.csv in BulkImporter's formats; returns {users, leave}.
+    Path[] writeCsv(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Path usersFile = dir.resolve("users.csv"), leaveFile = dir.resolve("leave.csv");
+        int[] used = new int[employees];
+        BitSet[] busy = new BitSet[employees];
+        int[][] teamOut = new int[(employees + TEAM_SIZE - 1) / TEAM_SIZE][400]; // approved absences per team day
+        try (ExportSink out = ExportSink.toFile(leaveFile, null)) {
+            out.append(BulkImporter.LEAVE_HEADER).append('\n');
+            int base = (int) yearStart.toEpochDay();
+            for (int i = 0; i < requests; i++) {
+                int emp = rnd.nextInt(employees);
+                int type = pickType(rnd);
+                int days = pickDays(rnd, type);
+                LocalDate start = pickStart(rnd, type, yearStart.getYear());
+                LocalDate end = start.plusDays(days - 1);
+                String status;
+                if (start.isAfter(today)) status = rnd.nextInt(10) < 7 ? "PENDING" : "APPROVED";
+                else status = rnd.nextInt(100) < 85 ? "APPROVED" : "REJECTED";
+                int from = (int) start.toEpochDay() - base, to = from + days - 1;
+                if (busy[emp] == null) busy[emp] = new BitSet(400);
+                if (!status.equals("REJECTED")
+                        && (used[emp] + days > DEFAULT_LEAVES_PER_YEAR || busy[emp].nextSetBit(from) != -1 && busy[emp].nextSetBit(from) <= to))
+                    status = "REJECTED";
+                if (status.equals("APPROVED")) {
+                    int[] teamDays = teamOut[emp / TEAM_SIZE];
+                    for (int d = from; d <= to; d++) if (teamDays[d] >= TEAM_DAILY_CAPACITY) { status = "REJECTED"; break; }
+                }
+                if (!status.equals("REJECTED")) {
+                    used[emp] += days;
+                    busy[emp].set(from, to + 1);
+                }
+                if (status.equals("APPROVED")) for (int d = from; d <= to; d++) teamOut[emp / TEAM_SIZE][d]++;
+                out.append(Integer.toString(1_000_000 + i)).append(',').append(Integer.toString(employeeId(emp))).append(',')
+                   .append(start.toString()).append(',').append(end.toString()).append(',').append(Integer.toString(days)).append(',')
+                   .append(TYPES[type]).append(',').append(status).append(',').append(pickReason(rnd, type)).append('\n');
+                out.endRecord();
+            }
+        }
+        try (ExportSink out = ExportSink.toFile(usersFile, null)) {
+            out.append(BulkImporter.USER_HEADER).append('\n');
+            for (int i = 0; i < employees; i++) {
+                out.append(Integer.toString(employeeId(i))).append(",Employee ").append(Integer.toString(i))
+                   .append(",emp").append(Integer.toString(i)).append("@org.test,").append(Integer.toString(DEFAULT_LEAVES_PER_YEAR))
+                   .append(',').append(Integer.toString(DEFAULT_LEAVES_PER_YEAR - used[i])).append(",0,Never,").append(team(i)).append('\n');
+                out.endRecord();
+            }
+        }
+        return new Path[]{usersFile, leaveFile};
+    }
+
+    // Loads the organisation into sys through the normal import path (journaled if sys has a store).
+    void populate(SmartLeaveSystem sys, Path dir) throws IOException {
+        Path[] files = writeCsv(dir);
+        BulkImporter importer = new BulkImporter(sys);
+        BulkImporter.Report users = importer.importUsers(files[0]);
+        BulkImporter.Report leave = importer.importRequests(files[1]);
+        if (users.rejected + leave.rejected > 0)
+            throw new IOException("generated data was rejected by the importer: " + users.errors + leave.errors);
+        for (int i = 0; i < managers; i++)
+            sys.commitUser(new Manager(managerId(i), "Manager " + i, "mgr" + i + "@org.test", "Welcome@" + managerId(i), DEFAULT_LEAVES_PER_YEAR));
+        for (int i = 0; i < admins; i++)
+            sys.commitUser(new Admin(adminId(i), "Admin " + i, "admin" + i + "@org.test", "Welcome@" + adminId(i), DEFAULT_LEAVES_PER_YEAR));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("usage: WorkloadGenerator <dir> [employees] [requests] [seed]");
+            return;
+        }
+        int employees = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+        Path[] files = new WorkloadGenerator(seed, employees, requests).writeCsv(Paths.get(args[0]));
+        System.out.println("Wrote " + files[0] + " and " + files[1] + " (seed " + seed + "); load them with Admin > Bulk Import.");
+    }
+}
@@ -1,13 +1,90 @@
 //SMART LEAVE MANAGEMNET SYSTEM MAIN CODE FILE TO BE RUN ON SYSTEM
 
-import java.io.FileWriter;
-import java.io.PrintWriter;
+package com.hr.main;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.security.NoSuchAlgorithmException;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.Month;
+import java.time.Year;
 import java.time.format.DateTimeFormatter;
+import java.time.format.TextStyle;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanParameterInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
 
 // ========================
 // SMART LEAVE SYSTEM
@@ -23,25 +100,56 @@ public class SmartLeaveSystem {
         public static final String YELLOW = "\u001B[33m";
         public static final String CYAN = "\u001B[36m";
         public static final String PURPLE = "\u001B[35m";
-        public static String color(String msg, String color) { return color + msg + RESET; }
+        static boolean enabled = true; // off in batch mode, where output goes to logs
+        public static String color(String msg, String color) { return enabled ? color + msg + RESET : msg; }
     }
-    static void printlnError(String msg) { System.out.println(Colors.color("🚫 " + msg, Colors.RED)); }
-    static void printlnSuccess(String msg) { System.out.println(Colors.color("✅ " + msg, Colors.GREEN)); }
-    static void printlnInfo(String msg) { System.out.println(Colors.color("\u2139 " + msg, Colors.CYAN)); }
+    // Without colors (batch mode) the icons become plain words so logs grep and read in any charset.
+    static void printlnError(String msg) { System.out.println(Colors.color((Colors.enabled ? "🚫 " : "ERROR ") + msg, Colors.RED)); }
+    static void printlnSuccess(String msg) { System.out.println(Colors.color((Colors.enabled ? "✅ " : "OK ") + msg, Colors.GREEN)); }
+    static void printlnInfo(String msg) { System.out.println(Colors.color((Colors.enabled ? "\u2139 " : "") + msg, Colors.CYAN)); }
 
     static final int DEFAULT_LEAVES_PER_YEAR = 30;
+    static final int TEAM_DAILY_CAPACITY = 3; // most members of one team out on the same day, unless the team sets its own
+    static final String JOURNAL_FILE = "leave_journal.wal";
+    static final String SNAPSHOT_FILE = "leave_snapshot.bin";
+    static final String AUDIT_FILE = "leave_audit.chain";
+    static final String FORECAST_FILE = "leave_forecast.bin";
+    static final long SNAPSHOT_EVERY = 50_000; // journal records between automatic snapshots
     static Scanner sc = new Scanner(System.in);
     static Random rnd = new Random();
 
     // Instance data
-    private List<User> users = new ArrayList<>();
-    private List<LeaveRequest> requests = new ArrayList<>();
+    final UserDirectory users = new UserDirectory();
+    // reqId -> request; iterates in reqId order and removes in O(log n).
+    final ConcurrentSkipListMap<Integer, LeaveRequest> requests = new ConcurrentSkipListMap<>();
+    final RequestIndex requestIndex = new RequestIndex();
+    final StatsStore stats = new StatsStore();
+    private final LeaveProfiles profiles = new LeaveProfiles();
+    private final Leaderboards boards = new Leaderboards();
+    private final AbsenceIndex absences = new AbsenceIndex(requests::values, requestIndex::forEmployee);
+    private final AttendanceCalendar attendance = new AttendanceCalendar(users, requests::values, requestIndex::forEmployee, this::loadHolidays);
+    private final TeamCapacity capacity = new TeamCapacity();
+    private final Map<String, Integer> teamLimits = new HashMap<>(); // teams with their own daily limit
     private List<HRFeedback> feedbacks = new ArrayList<>();
+    private Journal journal; // null = in-memory only
+    // Lock order: team stripe, employee stripe, commit gate, then store. See "Leave operations".
+    final ReentrantReadWriteLock store = new ReentrantReadWriteLock();
+    // Shared by every commit from journal write to publish; lockAll takes it exclusively, so bulk
+    // changes and snapshots never run while a written record is still waiting to be applied.
+    private final ReentrantReadWriteLock commits = new ReentrantReadWriteLock();
+    private final Condition published = store.writeLock().newCondition();
+    private long publishedSeq; // last journal record applied to memory
+    private final LockStripes employeeLocks = new LockStripes(64);
+    private final LockStripes teamLocks = new LockStripes(8);
+    AuditChain chain; // null = no audit trail (in-memory only)
+    private Path snapshotFile;
+    private FileChannel storeLock; // held while the store is open; one process per store
 
     // ---------- Validators ----------
     static class InputValidator {
+        private static final Pattern EMAIL = Pattern.compile("^[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
         public static boolean isValidEmail(String email) {
-            return email.matches("^[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
+            return EMAIL.matcher(email).matches();
         }
         public static boolean isValidDate(String date) {
             try { LocalDate.parse(date); return true; }
@@ -51,35 +159,81 @@ public class SmartLeaveSystem {
             try { Integer.parseInt(s); return true; }
             catch (Exception e) { return false; }
         }
+        // New passwords: at least 8 characters with a letter and a digit.
+        public static boolean isValidPassword(String pw) {
+            return pw.length() >= 8 && pw.chars().anyMatch(Character::isLetter) && pw.chars().anyMatch(Character::isDigit);
+        }
     }
 
     // ---------- Table Formatter ----------
+    // Fixed-width table rendered into one reusable buffer: the border and header line are built
+    // once per table, cells are padded from a shared run of spaces, and each page goes out in a
+    // single write. browse() pages through any number of rows, touching only the visible ones.
     static class TableFormatter {
+        static final int PAGE_ROWS = 20;
+        private static final String SPACES = " ".repeat(256);
+
+        interface RowSource { String[] row(int index); }
+
+        private final int[] widths;
+        private final String border, headerLine;
+        private final StringBuilder buf = new StringBuilder(4096);
+
+        TableFormatter(String[] headers, int[] widths) {
+            this.widths = widths;
+            StringBuilder b = new StringBuilder("+");
+            for (int w : widths) b.append("-".repeat(w + 2)).append('+');
+            this.border = b.append('\n').toString();
+            this.headerLine = line(new StringBuilder(), headers).toString();
+        }
+
         public static String fit(String s, int len) {
+            return pad(new StringBuilder(len), s, len).toString();
+        }
+        private static StringBuilder pad(StringBuilder sb, String s, int len) {
             if (s == null) s = "";
-            if (s.length() > len) return s.substring(0, len - 2) + "…";
-            return String.format("%-" + len + "s", s);
+            if (s.length() > len) return sb.append(s, 0, len - 1).append('…');
+            sb.append(s);
+            for (int n = len - s.length(); n > 0; n -= SPACES.length()) sb.append(SPACES, 0, Math.min(n, SPACES.length()));
+            return sb;
         }
-        public static void printTableHeader(String[] headers, int[] widths) {
-            String border = "+";
-            for (int w : widths) border += "-".repeat(w + 2) + "+";
-            System.out.println(border);
-            System.out.print("|");
-            for (int i = 0; i < headers.length; i++)
-                System.out.print(" " + fit(headers[i], widths[i]) + " |");
-            System.out.println();
-            System.out.println(border);
+        private StringBuilder line(StringBuilder sb, String[] cols) {
+            sb.append('|');
+            for (int i = 0; i < widths.length; i++) pad(sb.append(' '), i < cols.length ? cols[i] : "", widths[i]).append(" |");
+            return sb.append('\n');
         }
-        public static void printRow(String[] cols, int[] widths) {
-            System.out.print("|");
-            for (int i = 0; i < widths.length; i++)
-                System.out.print(" " + fit(cols[i], widths[i]) + " |");
-            System.out.println();
+
+        public TableFormatter header() { buf.append(border).append(headerLine).append(border); return this; }
+        public TableFormatter row(String... cols) { line(buf, cols); return this; }
+        public TableFormatter footer() { buf.append(border); return this; }
+        public void flush() {
+            System.out.print(buf);
+            System.out.flush();
+            buf.setLength(0);
         }
-        public static void printTableFooter(int[] widths) {
-            String border = "+";
-            for (int w : widths) border += "-".repeat(w + 2) + "+";
-            System.out.println(border);
+
+        // Whole table if it fits on one page, else one page at a time with a navigation prompt.
+        public void browse(int total, RowSource rows) {
+            int pages = Math.max(1, (total + PAGE_ROWS - 1) / PAGE_ROWS);
+            int page = 0;
+            while (true) {
+                int from = page * PAGE_ROWS, to = Math.min(total, from + PAGE_ROWS);
+                header();
+                for (int i = from; i < to; i++) row(rows.row(i));
+                footer();
+                if (pages == 1) { flush(); return; }
+                buf.append("Page ").append(page + 1).append('/').append(pages)
+                   .append(" (rows ").append(from + 1).append('-').append(to).append(" of ").append(total).append(")\n");
+                flush();
+                System.out.print("[Enter] next, p prev, f first, l last, <page no.>, q quit: ");
+                String in = sc.hasNextLine() ? sc.nextLine().trim().toLowerCase(Locale.ROOT) : "q";
+                if (in.equals("q")) return;
+                else if (in.isEmpty() || in.equals("n")) { if (page == pages - 1) return; page++; }
+                else if (in.equals("p")) page = Math.max(0, page - 1);
+                else if (in.equals("f")) page = 0;
+                else if (in.equals("l")) page = pages - 1;
+                else if (InputValidator.isInt(in)) page = Math.min(pages, Math.max(1, Integer.parseInt(in))) - 1;
+            }
         }
     }
 
@@ -88,6 +242,8 @@ public class SmartLeaveSystem {
         private int empId, leaveBalance, badges;
         private final int totalLeavesAllowed = DEFAULT_LEAVES_PER_YEAR;
         private String name, email, password, lastLogin;
+        private String team; // null = in no team, so no absence cap applies
+        private boolean mustChangePassword; // imported accounts, until the one-time password is replaced
 
         public User(int empId, String name, String email, String password, int leaveBalance) {
             this.empId = empId;
@@ -102,6 +258,9 @@ public class SmartLeaveSystem {
         public String getName() { return name; }
         public String getEmail() { return email; }
         public String getPassword() { return password; }
+        public void setPassword(String pw) { this.password = pw; }
+        public boolean mustChangePassword() { return mustChangePassword; }
+        public void setMustChangePassword(boolean b) { this.mustChangePassword = b; }
         public int getLeaveBalance() { return leaveBalance; }
         public void setLeaveBalance(int lb) { this.leaveBalance = lb; }
         public int getBadges() { return badges; }
@@ -109,6 +268,8 @@ public class SmartLeaveSystem {
         public int getTotalLeavesAllowed() { return totalLeavesAllowed; }
         public String getLastLogin() { return lastLogin; }
         public void setLastLogin(String ll) { this.lastLogin = ll; }
+        public String getTeam() { return team; }
+        public void setTeam(String team) { this.team = team; }
         public abstract void viewDashboard(SmartLeaveSystem sys);
     }
 
@@ -136,30 +297,134 @@ public class SmartLeaveSystem {
         public void viewDashboard(SmartLeaveSystem sys) { sys.adminMenu(this); }
     }
 
+    // Dates are kept as epoch days and status/type as byte codes; the String getters rebuild the
+    // familiar text on demand. Comments and custom types go through a small dedup cache since the
+    // same short reasons repeat a lot.
     static class LeaveRequest {
-        private static int counter = 1000;
+        static final byte PENDING = 0, APPROVED = 1, REJECTED = 2;
+        private static final String[] STATUS_NAMES = {"PENDING", "APPROVED", "REJECTED"};
+        static final byte SICK = 0, CASUAL = 1, WFH = 2, VACATION = 3, OTHERS = 4;
+        private static final String[] TYPE_NAMES = {"Sick", "Casual", "WFH", "Vacation", "Others"};
+
+        private static final AtomicInteger NEXT_ID = new AtomicInteger(1000);
         private int reqId, empId, requestedDays;
-        private String start, end, type, status, comments;
+        private int startDay, endDay;
+        private byte status, type;
+        private String customType; // exact text when it isn't one of TYPE_NAMES, else null
+        private String comments;
+        private long auditSeq = -1; // latest audit chain block for this request
 
         public LeaveRequest(int eid, String start, String end, String type, String comm, int days) {
-            this.reqId = counter++;
+            this(NEXT_ID.getAndIncrement(), eid, start, end, type, comm, days);
+        }
+        // Recreates a request with a known id (journal replay); later ids continue after it.
+        LeaveRequest(int reqId, int eid, String start, String end, String type, String comm, int days) {
+            this(reqId, eid, (int) LocalDate.parse(start).toEpochDay(), (int) LocalDate.parse(end).toEpochDay(), type, comm, days);
+        }
+        LeaveRequest(int reqId, int eid, int startDay, int endDay, String type, String comm, int days) {
+            this.reqId = reqId;
+            reserveIdsBelow(reqId + 1);
             this.empId = eid;
-            this.start = start;
-            this.end = end;
-            this.type = type;
-            this.status = "PENDING";
-            this.comments = comm;
+            this.startDay = startDay;
+            this.endDay = endDay;
+            this.type = typeCode(type);
+            if (type != null && !type.equals(TYPE_NAMES[this.type])) this.customType = dedup(type);
+            this.status = PENDING;
+            this.comments = comm == null ? null : dedup(comm);
             this.requestedDays = days;
         }
+        // Id the next new request gets; raised past any id seen so far, never lowered.
+        static int nextId() { return NEXT_ID.get(); }
+        static void reserveIdsBelow(int next) { NEXT_ID.accumulateAndGet(next, Math::max); }
         public int getReqId() { return reqId; }
         public int getEmpId() { return empId; }
-        public String getStart() { return start; }
-        public String getEnd() { return end; }
-        public String getType() { return type; }
-        public String getStatus() { return status; }
-        public void setStatus(String s) { this.status = s; }
+        public String getStart() { return day(startDay); }
+        public String getEnd() { return day(endDay); }
+        public String getType() { return customType != null ? customType : TYPE_NAMES[type]; }
+        public String getStatus() { return STATUS_NAMES[status]; }
+        public void setStatus(String s) { this.status = statusCode(s); }
         public String getComments() { return comments; }
         public int getRequestedDays() { return requestedDays; }
+        int startDay() { return startDay; }
+        int endDay() { return endDay; }
+        byte statusCode() { return status; }
+        byte typeCode() { return type; }
+        boolean isPending() { return status == PENDING; }
+        long getAuditSeq() { return auditSeq; }
+        void setAuditSeq(long seq) { this.auditSeq = seq; }
+
+        // yyyy-MM-dd exactly as LocalDate prints it, straight from the epoch day, so exports, the
+        // audit chain and tables skip a LocalDate and a StringBuilder per date. Only years 0-9999
+        // are done here (formatDay returns false otherwise); the rest fall back to LocalDate.
+        static final int DAY_CHARS = 10;
+        static boolean formatDay(int epochDay, char[] dst, int off) {
+            int ymd = yyyymmdd(epochDay);
+            if (ymd < 0) return false;
+            for (int i = DAY_CHARS - 1; i >= 0; i--) {
+                if (i == 4 || i == 7) { dst[off + i] = '-'; continue; }
+                dst[off + i] = (char) ('0' + ymd % 10);
+                ymd /= 10;
+            }
+            return true;
+        }
+        static StringBuilder appendDay(StringBuilder sb, int epochDay) {
+            int at = sb.length();
+            sb.setLength(at + DAY_CHARS);
+            int ymd = yyyymmdd(epochDay);
+            if (ymd < 0) return sb.replace(at, at + DAY_CHARS, LocalDate.ofEpochDay(epochDay).toString());
+            for (int i = DAY_CHARS - 1; i >= 0; i--) {
+                if (i == 4 || i == 7) { sb.setCharAt(at + i, '-'); continue; }
+                sb.setCharAt(at + i, (char) ('0' + ymd % 10));
+                ymd /= 10;
+            }
+            return sb;
+        }
+        static String day(int epochDay) {
+            char[] c = new char[DAY_CHARS];
+            return formatDay(epochDay, c, 0) ? new String(c) : LocalDate.ofEpochDay(epochDay).toString();
+        }
+        // The date as the number yyyymmdd, or -1 outside years 0-9999 (Hinnant's civil-from-days).
+        private static int yyyymmdd(int epochDay) {
+            long z = epochDay + 719_468L; // days since 0000-03-01
+            long era = Math.floorDiv(z, 146_097), doe = z - era * 146_097;
+            long yoe = (doe - doe / 1460 + doe / 36_524 - doe / 146_096) / 365;
+            long doy = doe - (365 * yoe + yoe / 4 - yoe / 100), mp = (5 * doy + 2) / 153;
+            int d = (int) (doy - (153 * mp + 2) / 5 + 1), m = (int) (mp < 10 ? mp + 3 : mp - 9);
+            long y = yoe + era * 400 + (m <= 2 ? 1 : 0);
+            return y < 0 || y > 9999 ? -1 : (int) y * 10_000 + m * 100 + d;
+        }
+
+        // Direct-mapped cache of recently seen texts: repeats share one String, unique texts just
+        // overwrite a slot. Unlike String.intern it never grows and costs one hash per call; a racy
+        // slot read at worst misses a share.
+        private static final String[] POOL = new String[1 << 12];
+        static String dedup(String s) {
+            int slot = (s.hashCode() * 0x9E3779B9) >>> 20;
+            String hit = POOL[slot];
+            if (s.equals(hit)) return hit;
+            POOL[slot] = s;
+            return s;
+        }
+
+        static byte statusCode(String s) {
+            switch (s) {
+                case "PENDING": return PENDING;
+                case "APPROVED": return APPROVED;
+                case "REJECTED": return REJECTED;
+                default: throw new IllegalArgumentException("unknown leave status '" + s + "'");
+            }
+        }
+        // Free-form types are bucketed the way LeavePatternPredictor always read them.
+        static byte typeCode(String t) {
+            if (t == null) return OTHERS;
+            for (byte i = 0; i < TYPE_NAMES.length; i++) if (TYPE_NAMES[i].equals(t)) return i;
+            String lower = t.toLowerCase(Locale.ROOT);
+            if (lower.contains("sick")) return SICK;
+            if (lower.contains("wfh")) return WFH;
+            if (lower.contains("vac")) return VACATION;
+            if (lower.contains("casual")) return CASUAL;
+            return OTHERS;
+        }
     }
 
     static class HRFeedback {
@@ -171,267 +436,3512 @@ public class SmartLeaveSystem {
         public String getMessage() { return message; }
     }
 
-    // ---------- Extra Features ----------
-    static class BlockchainSimulator {
-        public static String hashLeave(LeaveRequest req) {
-            String content = req.getReqId() + ":" + req.getEmpId() + ":" + req.getStart() + ":" + req.getEnd() + ":" + req.getType() + ":" + req.getStatus();
-            return Integer.toHexString(content.hashCode());
+    // ---------- User Directory ----------
+    // Open-addressing int -> value map so empId lookups never box the key.
+    static class IntMap<V> {
+        private int[] keys = new int[16];
+        private Object[] vals = new Object[16];
+        private boolean[] used = new boolean[16];
+        private int size;
+
+        private static int slot(int key, int mask) {
+            int h = key * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & mask;
         }
-        public static void printLeaveChain(List<LeaveRequest> requests) {
-            System.out.println(Colors.color("🛡 Blockchain Leave Chain:", Colors.PURPLE));
-            for (LeaveRequest req : requests)
-                System.out.println("Block: ReqID " + req.getReqId() + " | Hash: " + hashLeave(req) + " | Status: " + req.getStatus());
+        @SuppressWarnings("unchecked")
+        public V get(int key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); used[i]; i = (i + 1) & mask)
+                if (keys[i] == key) return (V) vals[i];
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        public V put(int key, V val) {
+            if ((size + 1) * 4 > keys.length * 3) grow();
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            for (; used[i]; i = (i + 1) & mask)
+                if (keys[i] == key) { V old = (V) vals[i]; vals[i] = val; return old; }
+            used[i] = true; keys[i] = key; vals[i] = val; size++;
+            return null;
         }
-        public static void verifyIntegrity(List<LeaveRequest> requests) {
-            System.out.println("Verifying hashes for all requests…");
-            for (LeaveRequest req : requests) {
-                String hash = hashLeave(req);
-                System.out.println("Request " + req.getReqId() + " hash: " + hash + " [OK]");
+        // Backward-shift deletion keeps probe chains intact without tombstones.
+        @SuppressWarnings("unchecked")
+        public V remove(int key) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (used[i] && keys[i] != key) i = (i + 1) & mask;
+            if (!used[i]) return null;
+            V old = (V) vals[i];
+            int gap = i;
+            for (int j = (gap + 1) & mask; used[j]; j = (j + 1) & mask) {
+                int home = slot(keys[j], mask);
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    keys[gap] = keys[j]; vals[gap] = vals[j]; gap = j;
+                }
             }
-            printlnSuccess("All hashes verified.");
+            used[gap] = false; vals[gap] = null; size--;
+            return old;
         }
-        public static void auditTrail(List<LeaveRequest> requests) {
-            System.out.println("Audit Trail (Hashes):");
-            for (LeaveRequest req : requests)
-                System.out.println("ReqID:" + req.getReqId() + " | Status:" + req.getStatus() + " | Hash:" + hashLeave(req));
+        private void grow() {
+            int[] ok = keys; Object[] ov = vals; boolean[] ou = used;
+            keys = new int[ok.length * 2]; vals = new Object[ok.length * 2]; used = new boolean[ok.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < ok.length; j++) if (ou[j]) {
+                int i = slot(ok[j], mask);
+                while (used[i]) i = (i + 1) & mask;
+                used[i] = true; keys[i] = ok[j]; vals[i] = ov[j];
+            }
         }
+        public int size() { return size; }
     }
 
-    static class LeavePatternPredictor {
-        public static void predict(User u, List<LeaveRequest> requests) {
-            int total = 0, sick = 0, wfh = 0, vac = 0;
-            for (LeaveRequest r : requests)
-                if (r.getEmpId() == u.getEmpId()) {
-                    total++;
-                    String t = r.getType().toLowerCase();
-                    if (t.contains("sick")) sick++;
-                    if (t.contains("wfh")) wfh++;
-                    if (t.contains("vac")) vac++;
-                }
-            System.out.println("🔮 Past leaves: " + total + " | Sick: " + sick + " | WFH: " + wfh + " | Vacation: " + vac);
-            System.out.println("Predicted: Next leave could be " + (wfh > sick && wfh > vac ? "WFH" : sick > vac ? "Sick" : "Vacation"));
+    // All users, indexed by empId, lower-cased email and concrete role.
+    static class UserDirectory implements Iterable<User> {
+        private static class Slot { User user; int pos; Slot(User u, int p) { user = u; pos = p; } }
+        private final List<User> all = new ArrayList<>();
+        private final IntMap<Slot> byId = new IntMap<>();
+        private final Map<String, User> byEmail = new HashMap<>();
+        private final Map<Class<?>, Set<User>> byRole = new HashMap<>();
+
+        static String emailKey(String email) { return email == null ? "" : email.trim().toLowerCase(Locale.ROOT); }
+
+        // Inserts, or replaces the user with the same empId. Returns false if the email belongs to someone else.
+        public boolean add(User u) {
+            String key = emailKey(u.getEmail());
+            User owner = byEmail.get(key);
+            if (owner != null && owner.getEmpId() != u.getEmpId()) return false;
+            Slot slot = byId.get(u.getEmpId());
+            if (slot == null) {
+                byId.put(u.getEmpId(), new Slot(u, all.size()));
+                all.add(u);
+            } else {
+                User old = slot.user;
+                byEmail.remove(emailKey(old.getEmail()));
+                byRole.get(old.getClass()).remove(old);
+                slot.user = u;
+                all.set(slot.pos, u);
+            }
+            byEmail.put(key, u);
+            byRole.computeIfAbsent(u.getClass(), c -> new LinkedHashSet<>()).add(u);
+            return true;
+        }
+        public User byId(int empId) {
+            Slot slot = byId.get(empId);
+            return slot == null ? null : slot.user;
+        }
+        public User byEmail(String email) { return byEmail.get(emailKey(email)); }
+        // Insertion index, stable across replacements (users are never removed); -1 if unknown.
+        public int position(int empId) {
+            Slot slot = byId.get(empId);
+            return slot == null ? -1 : slot.pos;
         }
+        public User at(int pos) { return all.get(pos); }
+        // Live view when a single concrete role matches (the usual case), a merged copy otherwise.
+        @SuppressWarnings("unchecked")
+        public <T extends User> Collection<T> ofRole(Class<T> clazz) {
+            List<Set<User>> matches = new ArrayList<>();
+            for (Map.Entry<Class<?>, Set<User>> e : byRole.entrySet())
+                if (clazz.isAssignableFrom(e.getKey())) matches.add(e.getValue());
+            if (matches.isEmpty()) return List.of();
+            if (matches.size() == 1) return (Collection<T>) Collections.unmodifiableSet(matches.get(0));
+            List<T> out = new ArrayList<>();
+            for (Set<User> m : matches) out.addAll((Set<T>) m);
+            return out;
+        }
+        public int count(Class<?> clazz) {
+            int cnt = 0;
+            for (Map.Entry<Class<?>, Set<User>> e : byRole.entrySet())
+                if (clazz.isAssignableFrom(e.getKey())) cnt += e.getValue().size();
+            return cnt;
+        }
+        public User first() { return all.isEmpty() ? null : all.get(0); }
+        public int size() { return all.size(); }
+        public boolean isEmpty() { return all.isEmpty(); }
+        @Override
+        public Iterator<User> iterator() { return Collections.unmodifiableList(all).iterator(); }
     }
 
-    static class AIStressDetector {
-        public static void analyze(User u) {
-            int leaveTaken = u.getTotalLeavesAllowed() - u.getLeaveBalance();
-            String suggestion = leaveTaken > 20 ? "⚠️ High Leaves: You might be stressed. Take wellness leave or consult HR."
-                    : leaveTaken < 5 ? "✅ Good leave pattern. Keep balancing work and rest."
-                    : "🟡 Moderate leave. Prioritize self-care.";
-            System.out.println("AI Stress Analysis:");
-            System.out.println("Leaves taken: " + leaveTaken);
-            System.out.println("Suggestion: " + suggestion);
+    // ---------- Leaderboards ----------
+    // Users ranked by one score, highest first, ties by EmpID. An AVL tree like IntervalTree whose
+    // nodes also count their subtree, so put/remove, rank and the k-th entry are O(log n) and the
+    // top N are O(log n + N). Each node keeps the score it was filed under, so a changed score
+    // is found, taken out and refiled.
+    static class Leaderboard {
+        private static final class Node {
+            final User user;
+            final int score;
+            Node left, right;
+            int height = 1, count = 1;
+            Node(User user, int score) { this.user = user; this.score = score; }
+        }
+        private Node root;
+        private final IntMap<Node> byEmp = new IntMap<>();
+
+        public int size() { return count(root); }
+        public void put(User u, int score) {
+            Node old = byEmp.get(u.getEmpId());
+            if (old != null) {
+                if (old.user == u && old.score == score) return;
+                root = remove(root, old);
+            }
+            Node n = new Node(u, score);
+            root = insert(root, n);
+            byEmp.put(u.getEmpId(), n);
+        }
+        public void remove(int empId) {
+            Node old = byEmp.remove(empId);
+            if (old != null) root = remove(root, old);
+        }
+        // Competition rank: 1 + users with a strictly higher score, so ties share a rank; 0 if absent.
+        public int rank(int empId) {
+            Node n = byEmp.get(empId);
+            return n == null ? 0 : countAbove(n.score) + 1;
+        }
+        public int countAbove(int score) {
+            int above = 0;
+            for (Node n = root; n != null; ) {
+                if (n.score > score) { above += count(n.left) + 1; n = n.right; }
+                else n = n.left;
+            }
+            return above;
+        }
+        public int score(User u) { return byEmp.get(u.getEmpId()).score; }
+        // Entry at 0-based position i in board order.
+        public User get(int i) {
+            Node n = root;
+            while (n != null) {
+                int left = count(n.left);
+                if (i < left) n = n.left;
+                else if (i == left) return n.user;
+                else { i -= left + 1; n = n.right; }
+            }
+            throw new IndexOutOfBoundsException("position " + i + " of " + size());
+        }
+        public List<User> top(int n) {
+            List<User> out = new ArrayList<>(Math.min(n, size()));
+            collect(root, n, out);
+            return out;
+        }
+        private static void collect(Node n, int limit, List<User> out) {
+            if (n == null || out.size() >= limit) return;
+            collect(n.left, limit, out);
+            if (out.size() < limit) out.add(n.user);
+            collect(n.right, limit, out);
+        }
+
+        private static int compare(Node a, Node b) {
+            int c = Integer.compare(b.score, a.score);
+            return c != 0 ? c : Integer.compare(a.user.getEmpId(), b.user.getEmpId());
+        }
+        private static Node insert(Node n, Node x) {
+            if (n == null) return x;
+            if (compare(x, n) < 0) n.left = insert(n.left, x);
+            else n.right = insert(n.right, x);
+            return balance(n);
+        }
+        private static Node remove(Node n, Node x) {
+            if (n == null) return null;
+            int c = compare(x, n);
+            if (c < 0) n.left = remove(n.left, x);
+            else if (c > 0) n.right = remove(n.right, x);
+            else {
+                if (n.left == null) return n.right;
+                if (n.right == null) return n.left;
+                Node succ = n.right;
+                while (succ.left != null) succ = succ.left;
+                succ.right = removeMin(n.right);
+                succ.left = n.left;
+                return balance(succ);
+            }
+            return balance(n);
+        }
+        private static Node removeMin(Node n) {
+            if (n.left == null) return n.right;
+            n.left = removeMin(n.left);
+            return balance(n);
+        }
+
+        private static int height(Node n) { return n == null ? 0 : n.height; }
+        private static int count(Node n) { return n == null ? 0 : n.count; }
+        private static void update(Node n) {
+            n.height = 1 + Math.max(height(n.left), height(n.right));
+            n.count = 1 + count(n.left) + count(n.right);
+        }
+        private static Node balance(Node n) {
+            update(n);
+            int bf = height(n.left) - height(n.right);
+            if (bf > 1) {
+                if (height(n.left.left) < height(n.left.right)) n.left = rotateLeft(n.left);
+                return rotateRight(n);
+            }
+            if (bf < -1) {
+                if (height(n.right.right) < height(n.right.left)) n.right = rotateRight(n.right);
+                return rotateLeft(n);
+            }
+            return n;
+        }
+        private static Node rotateRight(Node n) {
+            Node l = n.left;
+            n.left = l.right;
+            l.right = n;
+            update(n);
+            update(l);
+            return l;
+        }
+        private static Node rotateLeft(Node n) {
+            Node r = n.right;
+            n.right = r.left;
+            r.left = n;
+            update(n);
+            update(r);
+            return r;
         }
     }
 
-    static class QRGenerator {
-        public static void printQR(String data) {
-            System.out.println("ASCII QR for [" + data + "]:");
-            for (int i = 0; i < 9; i++) {
-                for (int j = 0; j < 18; j++) {
-                    if (rnd.nextBoolean()) System.out.print("█");
-                    else System.out.print(" ");
-                }
-                System.out.println();
+    // Badges and leaves-taken boards, org-wide and per team (users in no team are only on the
+    // org-wide ones), kept in step by addUser, setTeam, setBadges and setLeaveBalance.
+    static class Leaderboards {
+        static final int BADGES = 0, TAKEN = 1;
+        private static final Leaderboard EMPTY = new Leaderboard();
+        private final Leaderboard[] org = {new Leaderboard(), new Leaderboard()};
+        private final Map<String, Leaderboard[]> teams = new TreeMap<>();
+
+        static int score(User u, int board) {
+            return board == BADGES ? u.getBadges() : u.getTotalLeavesAllowed() - u.getLeaveBalance();
+        }
+        public void update(User u) {
+            Leaderboard[] team = u.getTeam() == null ? null
+                    : teams.computeIfAbsent(u.getTeam(), c -> new Leaderboard[]{new Leaderboard(), new Leaderboard()});
+            for (int b = 0; b < org.length; b++) {
+                org[b].put(u, score(u, b));
+                if (team != null) team[b].put(u, score(u, b));
             }
-            System.out.println("Scan simulation: Console QR not for phone cameras. Real QR would link profile or verification page.");
         }
+        // Call while u still has the team it was filed under.
+        public void remove(User u) {
+            Leaderboard[] team = u.getTeam() == null ? null : teams.get(u.getTeam());
+            for (int b = 0; b < org.length; b++) {
+                org[b].remove(u.getEmpId());
+                if (team != null) team[b].remove(u.getEmpId());
+            }
+            if (team != null && team[BADGES].size() == 0) teams.remove(u.getTeam());
+        }
+        // team = null for the org-wide board.
+        public Leaderboard board(int which, String team) {
+            if (team == null) return org[which];
+            Leaderboard[] t = teams.get(team);
+            return t == null ? EMPTY : t[which];
+        }
+        // Teams with at least one member, by name.
+        public Set<String> teams() { return teams.keySet(); }
     }
 
-    // ---------- Demo Data ----------
-    void loadDemoData() {
-        users.add(new Employee(101, "Shubhangi Tyagi", "shubhangi@email.com", "pass123", 24));
-        users.add(new Manager(201, "Parul Rana", "parul@email.com", "manager1", 30));
-        users.add(new Admin(301, "Dr. Swati Gupta", "admin@email.com", "admin2050", 50));
-        LeaveRequest req = new LeaveRequest(101, "2025-11-10", "2025-11-11", "WFH", "Remote work", 2);
-        req.setStatus("APPROVED");
-        requests.add(req);
+    // ---------- Request Index ----------
+    // empId -> that employee's requests, split by status, plus reqId -> request.
+    // Buckets are plain lists: one employee's history is small, so O(k) removal is cheap.
+    static class RequestIndex {
+        private static class EmpBucket {
+            final List<LeaveRequest> all = new ArrayList<>(4);
+            final Map<String, List<LeaveRequest>> byStatus = new HashMap<>(4);
+        }
+        private final IntMap<EmpBucket> byEmp = new IntMap<>();
+        private final IntMap<LeaveRequest> byReqId = new IntMap<>();
+
+        public void add(LeaveRequest r) {
+            EmpBucket b = byEmp.get(r.getEmpId());
+            if (b == null) { b = new EmpBucket(); byEmp.put(r.getEmpId(), b); }
+            b.all.add(r);
+            b.byStatus.computeIfAbsent(r.getStatus(), k -> new ArrayList<>(4)).add(r);
+            byReqId.put(r.getReqId(), r);
+        }
+        public void remove(LeaveRequest r) {
+            if (byReqId.remove(r.getReqId()) == null) return;
+            EmpBucket b = byEmp.get(r.getEmpId());
+            b.all.remove(r);
+            List<LeaveRequest> bucket = b.byStatus.get(r.getStatus());
+            if (bucket != null) bucket.remove(r);
+        }
+        // Call after r.setStatus(..) with the status it had before.
+        public void statusChanged(LeaveRequest r, String oldStatus) {
+            if (byReqId.get(r.getReqId()) != r) return;
+            EmpBucket b = byEmp.get(r.getEmpId());
+            List<LeaveRequest> from = b.byStatus.get(oldStatus);
+            if (from != null) from.remove(r);
+            b.byStatus.computeIfAbsent(r.getStatus(), k -> new ArrayList<>(4)).add(r);
+        }
+        public LeaveRequest byReqId(int reqId) { return byReqId.get(reqId); }
+        public Collection<LeaveRequest> forEmployee(int empId) {
+            EmpBucket b = byEmp.get(empId);
+            return b == null ? List.of() : Collections.unmodifiableList(b.all);
+        }
+        public Collection<LeaveRequest> forEmployee(int empId, String status) {
+            EmpBucket b = byEmp.get(empId);
+            List<LeaveRequest> bucket = b == null ? null : b.byStatus.get(status);
+            return bucket == null ? List.of() : Collections.unmodifiableList(bucket);
+        }
     }
 
-    // ---------- Prompts ----------
-    String promptValidDate(String prompt) {
-        while (true) {
-            System.out.print(prompt + " [YYYY-MM-DD]: ");
-            String in = sc.nextLine().trim();
-            if (InputValidator.isValidDate(in)) return in;
-            printlnError("Invalid date! Please re-enter.");
+    // ---------- Absence Index ----------
+    // AVL tree of requests ordered by (startDay, reqId). Each node also carries the largest endDay
+    // in its subtree, so an overlap search skips every subtree that ends before the range starts
+    // and stops at the first node starting after it.
+    static class IntervalTree {
+        private static final class Node {
+            final LeaveRequest r;
+            Node left, right;
+            int height = 1, maxEnd;
+            Node(LeaveRequest r) { this.r = r; this.maxEnd = r.endDay(); }
+        }
+        private Node root;
+        private int size;
+
+        // Balanced tree over the given requests in one pass after a sort, instead of n rebalancing inserts.
+        static IntervalTree of(List<LeaveRequest> list) {
+            IntervalTree t = new IntervalTree();
+            list.sort(IntervalTree::compare);
+            t.root = build(list, 0, list.size());
+            t.size = list.size();
+            return t;
+        }
+        private static Node build(List<LeaveRequest> list, int from, int to) {
+            if (from >= to) return null;
+            int mid = (from + to) >>> 1;
+            Node n = new Node(list.get(mid));
+            n.left = build(list, from, mid);
+            n.right = build(list, mid + 1, to);
+            update(n);
+            return n;
+        }
+
+        public int size() { return size; }
+        public boolean isEmpty() { return size == 0; }
+        public void insert(LeaveRequest r) {
+            root = insert(root, r);
+            size++;
+        }
+        public boolean remove(LeaveRequest r) {
+            int before = size;
+            root = remove(root, r);
+            return size < before;
+        }
+        // First request (by start day) overlapping [from, to], other than ignore.
+        public LeaveRequest firstOverlap(int from, int to, LeaveRequest ignore) { return first(root, from, to, ignore); }
+        // Every request overlapping [from, to], in start-day order.
+        public void overlapping(int from, int to, Consumer<LeaveRequest> out) { collect(root, from, to, out); }
+
+        private static int compare(LeaveRequest a, LeaveRequest b) {
+            int c = Integer.compare(a.startDay(), b.startDay());
+            return c != 0 ? c : Integer.compare(a.getReqId(), b.getReqId());
+        }
+        private static Node insert(Node n, LeaveRequest r) {
+            if (n == null) return new Node(r);
+            if (compare(r, n.r) < 0) n.left = insert(n.left, r);
+            else n.right = insert(n.right, r);
+            return balance(n);
+        }
+        private Node remove(Node n, LeaveRequest r) {
+            if (n == null) return null;
+            int c = compare(r, n.r);
+            if (c < 0) n.left = remove(n.left, r);
+            else if (c > 0) n.right = remove(n.right, r);
+            else {
+                size--;
+                if (n.left == null) return n.right;
+                if (n.right == null) return n.left;
+                Node succ = n.right;
+                while (succ.left != null) succ = succ.left;
+                succ.right = removeMin(n.right);
+                succ.left = n.left;
+                return balance(succ);
+            }
+            return balance(n);
+        }
+        private static Node removeMin(Node n) {
+            if (n.left == null) return n.right;
+            n.left = removeMin(n.left);
+            return balance(n);
+        }
+        private static LeaveRequest first(Node n, int from, int to, LeaveRequest ignore) {
+            if (n == null || n.maxEnd < from) return null;
+            LeaveRequest hit = first(n.left, from, to, ignore);
+            if (hit != null) return hit;
+            if (n.r.startDay() > to) return null;
+            if (n.r.endDay() >= from && n.r != ignore) return n.r;
+            return first(n.right, from, to, ignore);
+        }
+        private static void collect(Node n, int from, int to, Consumer<LeaveRequest> out) {
+            if (n == null || n.maxEnd < from) return;
+            collect(n.left, from, to, out);
+            if (n.r.startDay() > to) return;
+            if (n.r.endDay() >= from) out.accept(n.r);
+            collect(n.right, from, to, out);
+        }
+
+        private static int height(Node n) { return n == null ? 0 : n.height; }
+        private static void update(Node n) {
+            n.height = 1 + Math.max(height(n.left), height(n.right));
+            int m = n.r.endDay();
+            if (n.left != null && n.left.maxEnd > m) m = n.left.maxEnd;
+            if (n.right != null && n.right.maxEnd > m) m = n.right.maxEnd;
+            n.maxEnd = m;
+        }
+        private static Node balance(Node n) {
+            update(n);
+            int bf = height(n.left) - height(n.right);
+            if (bf > 1) {
+                if (height(n.left.left) < height(n.left.right)) n.left = rotateLeft(n.left);
+                return rotateRight(n);
+            }
+            if (bf < -1) {
+                if (height(n.right.right) < height(n.right.left)) n.right = rotateRight(n.right);
+                return rotateLeft(n);
+            }
+            return n;
+        }
+        private static Node rotateRight(Node n) {
+            Node l = n.left;
+            n.left = l.right;
+            l.right = n;
+            update(n);
+            update(l);
+            return l;
+        }
+        private static Node rotateLeft(Node n) {
+            Node r = n.right;
+            n.right = r.left;
+            r.left = n;
+            update(n);
+            update(r);
+            return r;
         }
     }
-    String promptValidEmail(String prompt) {
-        while (true) {
-            System.out.print(prompt + ": ");
-            String in = sc.nextLine().trim();
-            if (InputValidator.isValidEmail(in)) return in;
-            printlnError("Invalid email! Please re-enter.");
+
+    // Date ranges of every PENDING or APPROVED request (rejected ones free the calendar again):
+    // one tree for the whole org answers "who is out", one per employee catches overlapping submissions.
+    // Trees are built on first use from the request store, so loading a snapshot pays nothing for
+    // them; once built they are kept in step by the add/remove/statusChanged hooks.
+    static class AbsenceIndex {
+        private final Supplier<Collection<LeaveRequest>> allRequests;
+        private final IntFunction<Collection<LeaveRequest>> employeeRequests;
+        private IntervalTree all;
+        private final IntMap<IntervalTree> byEmp = new IntMap<>();
+
+        AbsenceIndex(Supplier<Collection<LeaveRequest>> allRequests, IntFunction<Collection<LeaveRequest>> employeeRequests) {
+            this.allRequests = allRequests;
+            this.employeeRequests = employeeRequests;
+        }
+        private static boolean occupies(byte status) { return status == LeaveRequest.PENDING || status == LeaveRequest.APPROVED; }
+        private static IntervalTree treeOf(Collection<LeaveRequest> requests) {
+            List<LeaveRequest> active = new ArrayList<>();
+            for (LeaveRequest r : requests) if (occupies(r.statusCode())) active.add(r);
+            return IntervalTree.of(active);
+        }
+
+        public void add(LeaveRequest r) {
+            if (!occupies(r.statusCode())) return;
+            if (all != null) all.insert(r);
+            IntervalTree t = byEmp.get(r.getEmpId());
+            if (t != null) t.insert(r);
+        }
+        public void remove(LeaveRequest r) {
+            if (!occupies(r.statusCode())) return;
+            drop(r);
+        }
+        // Call after r.setStatus(..) with the status it had before.
+        public void statusChanged(LeaveRequest r, String oldStatus) {
+            boolean was = occupies(LeaveRequest.statusCode(oldStatus)), now = occupies(r.statusCode());
+            if (was == now) return;
+            if (now) add(r);
+            else drop(r);
+        }
+        private void drop(LeaveRequest r) {
+            if (all != null) all.remove(r);
+            IntervalTree t = byEmp.get(r.getEmpId());
+            if (t != null) t.remove(r);
+        }
+        // The employee's own PENDING/APPROVED request overlapping [from, to], if any; ignore = request being edited.
+        public LeaveRequest overlap(int empId, int from, int to, LeaveRequest ignore) {
+            return employeeTree(empId).firstOverlap(from, to, ignore);
+        }
+        public List<LeaveRequest> outBetween(int from, int to) {
+            List<LeaveRequest> out = new ArrayList<>();
+            allTree().overlapping(from, to, out::add);
+            return out;
+        }
+        // Lazy builds can happen under a shared read lock, so they are serialised here.
+        private synchronized IntervalTree employeeTree(int empId) {
+            IntervalTree t = byEmp.get(empId);
+            if (t == null) { t = treeOf(employeeRequests.apply(empId)); byEmp.put(empId, t); }
+            return t;
+        }
+        private synchronized IntervalTree allTree() {
+            if (all == null) all = treeOf(allRequests.get());
+            return all;
         }
     }
-    int promptInt(String prompt) {
-        while (true) {
-            System.out.print(prompt + ": ");
-            String in = sc.nextLine().trim();
-            if (InputValidator.isInt(in)) return Integer.parseInt(in);
-            printlnError("Not a valid number! Try again.");
+
+    // ---------- Team Capacity ----------
+    // Segment tree over the days of one year: add to a day range and max over a day range, both
+    // O(log n). Additions stay at the covering nodes (no push-down); a node's max includes its own.
+    static class DayCounter {
+        static final int DAYS = 366;
+        private final int[] max = new int[4 * DAYS], pending = new int[4 * DAYS];
+
+        public void add(int from, int to, int delta) { add(1, 0, DAYS - 1, from, to, delta); }
+        public int max(int from, int to) { return max(1, 0, DAYS - 1, from, to); }
+
+        private void add(int node, int lo, int hi, int from, int to, int delta) {
+            if (to < lo || hi < from) return;
+            if (from <= lo && hi <= to) {
+                max[node] += delta;
+                pending[node] += delta;
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            add(2 * node, lo, mid, from, to, delta);
+            add(2 * node + 1, mid + 1, hi, from, to, delta);
+            max[node] = pending[node] + Math.max(max[2 * node], max[2 * node + 1]);
+        }
+        private int max(int node, int lo, int hi, int from, int to) {
+            if (to < lo || hi < from) return Integer.MIN_VALUE;
+            if (from <= lo && hi <= to) return max[node];
+            int mid = (lo + hi) >>> 1;
+            return pending[node] + Math.max(max(2 * node, lo, mid, from, to), max(2 * node + 1, mid + 1, hi, from, to));
         }
     }
 
-    // ---------- File helpers ----------
-    private static String timestampForFile() {
-        return LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+    // Approved absences per team per day, one DayCounter per (team, calendar year); requests that
+    // cross New Year are split. Users in no team are not counted.
+    static class TeamCapacity {
+        private final Map<String, Map<Integer, DayCounter>> byTeam = new HashMap<>();
+
+        public void add(String team, LeaveRequest r, int delta) {
+            Map<Integer, DayCounter> years = byTeam.computeIfAbsent(team, k -> new HashMap<>());
+            forEachYear(r.startDay(), r.endDay(), (year, from, to) ->
+                    years.computeIfAbsent(year, k -> new DayCounter()).add(from, to, delta));
+        }
+        // Most team members out on any single day of [fromDay, toDay] (epoch days).
+        public int peak(String team, int fromDay, int toDay) {
+            Map<Integer, DayCounter> years = byTeam.get(team);
+            if (years == null) return 0;
+            int[] peak = {0};
+            forEachYear(fromDay, toDay, (year, from, to) -> {
+                DayCounter c = years.get(year);
+                if (c != null) peak[0] = Math.max(peak[0], c.max(from, to));
+            });
+            return peak[0];
+        }
+
+        private interface YearRange { void accept(int year, int fromDayOfYear, int toDayOfYear); }
+        private static void forEachYear(int fromDay, int toDay, YearRange f) {
+            LocalDate from = LocalDate.ofEpochDay(fromDay), to = LocalDate.ofEpochDay(toDay);
+            for (int y = from.getYear(); y <= to.getYear(); y++) {
+                int a = y == from.getYear() ? from.getDayOfYear() : 1;
+                int b = y == to.getYear() ? to.getDayOfYear() : Year.of(y).length();
+                f.accept(y, a - 1, b - 1);
+            }
+        }
     }
-    private static void saveToFile(String fileName, String data) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(fileName))) {
-            writer.print(data);
-            printlnSuccess("Saved: " + fileName);
-        } catch (IOException e) {
-            printlnError("Failed to save file: " + e.getMessage());
+
+    // ---------- Attendance ----------
+    // Approved leave as bitmaps, per calendar year: one row per user (6 words cover 366 days) and
+    // one column per day (a BitSet of users), both indexed by the user's UserDirectory position.
+    // Month/quarter/year figures are popcounts of a row masked by the year's working days (Mon-Fri
+    // minus holidays); "who is present on day X" is a team bitmap AND NOT that day's column.
+    // Built on first use like AbsenceIndex, then kept in step by the user/request hooks.
+    static class AttendanceCalendar {
+        static final int WORDS = 6, DAYS = 366;
+        private static final class YearBits {
+            long[] rows = new long[WORDS * 1024];
+            final BitSet[] days = new BitSet[DAYS];
+        }
+        private final UserDirectory users;
+        private final Supplier<Collection<LeaveRequest>> allRequests;
+        private final IntFunction<Collection<LeaveRequest>> employeeRequests;
+        private final Supplier<Set<LocalDate>> holidays;
+        private final Map<Integer, YearBits> years = new HashMap<>();
+        private final Map<Integer, long[]> workdays = new HashMap<>();
+        private final BitSet everyone = new BitSet();
+        private final Map<String, BitSet> teams = new TreeMap<>(); // members by User.getTeam; no empty sets
+        private Set<LocalDate> holidaySet;
+        private boolean built;
+
+        AttendanceCalendar(UserDirectory users, Supplier<Collection<LeaveRequest>> allRequests,
+                           IntFunction<Collection<LeaveRequest>> employeeRequests, Supplier<Set<LocalDate>> holidays) {
+            this.users = users;
+            this.allRequests = allRequests;
+            this.employeeRequests = employeeRequests;
+            this.holidays = holidays;
+        }
+
+        // Call after users.add(u); old = the user it replaced, if any.
+        public void userAdded(User old, User u) {
+            if (!built) return;
+            int pos = users.position(u.getEmpId());
+            everyone.set(pos);
+            if (old != null) leave(old.getTeam(), pos);
+            join(u.getTeam(), pos);
+        }
+        // Call after u.setTeam(..) with the team it had before.
+        public void teamChanged(User u, String oldTeam) {
+            if (!built) return;
+            int pos = users.position(u.getEmpId());
+            leave(oldTeam, pos);
+            join(u.getTeam(), pos);
+        }
+        private void join(String team, int pos) {
+            if (team != null) teams.computeIfAbsent(team, t -> new BitSet()).set(pos);
+        }
+        private void leave(String team, int pos) {
+            BitSet t = team == null ? null : teams.get(team);
+            if (t == null) return;
+            t.clear(pos);
+            if (t.isEmpty()) teams.remove(team);
+        }
+        public void add(LeaveRequest r) {
+            if (built && r.statusCode() == LeaveRequest.APPROVED) mark(r, true);
+        }
+        public void remove(LeaveRequest r) {
+            if (built && r.statusCode() == LeaveRequest.APPROVED) unmark(r);
+        }
+        // Call after r.setStatus(..) with the status it had before.
+        public void statusChanged(LeaveRequest r, String oldStatus) {
+            if (!built) return;
+            boolean was = LeaveRequest.statusCode(oldStatus) == LeaveRequest.APPROVED, now = r.statusCode() == LeaveRequest.APPROVED;
+            if (was == now) return;
+            if (now) mark(r, true);
+            else unmark(r);
+        }
+
+        // Mon-Fri that are not holidays, in [from, to].
+        public int workingDays(LocalDate from, LocalDate to) {
+            int[] n = {0};
+            TeamCapacity.forEachYear((int) from.toEpochDay(), (int) to.toEpochDay(), (year, a, b) -> {
+                long[] work = workdays(year);
+                for (int w = a >>> 6; w <= b >>> 6; w++) n[0] += Long.bitCount(work[w] & span(w, a, b));
+            });
+            return n[0];
+        }
+        // Working days in [from, to] the employee spent on approved leave.
+        public int leaveDays(int empId, LocalDate from, LocalDate to) {
+            int pos = users.position(empId);
+            if (pos < 0) return 0;
+            build();
+            int[] n = {0};
+            TeamCapacity.forEachYear((int) from.toEpochDay(), (int) to.toEpochDay(), (year, a, b) -> {
+                YearBits y = years.get(year);
+                if (y == null || pos * WORDS >= y.rows.length) return;
+                long[] work = workdays(year);
+                for (int w = a >>> 6; w <= b >>> 6; w++)
+                    n[0] += Long.bitCount(y.rows[pos * WORDS + w] & work[w] & span(w, a, b));
+            });
+            return n[0];
+        }
+        // leaveDays for every user at once, indexed by position: one pass over each year's rows.
+        public int[] leaveDays(LocalDate from, LocalDate to) {
+            build();
+            int[] n = new int[users.size()];
+            TeamCapacity.forEachYear((int) from.toEpochDay(), (int) to.toEpochDay(), (year, a, b) -> {
+                YearBits y = years.get(year);
+                if (y == null) return;
+                long[] work = workdays(year), mask = new long[WORDS];
+                for (int w = 0; w < WORDS; w++) mask[w] = work[w] & span(w, a, b);
+                int wa = a >>> 6, wb = b >>> 6, limit = Math.min(n.length, y.rows.length / WORDS);
+                long[] rows = y.rows;
+                for (int pos = 0, base = 0; pos < limit; pos++, base += WORDS) {
+                    int c = 0;
+                    for (int w = wa; w <= wb; w++) c += Long.bitCount(rows[base + w] & mask[w]);
+                    n[pos] += c;
+                }
+            });
+            return n;
+        }
+        // Positions of the team's users (team = null: everyone) not on approved leave that day;
+        // empty on weekends and holidays.
+        public BitSet presentOn(LocalDate day, String team) {
+            return presentThroughout(day, day, team);
+        }
+        public BitSet presentThroughout(LocalDate from, LocalDate to, String team) {
+            return presentAmong(from, to, members(team));
+        }
+        // Present on every working day of [from, to]: who AND NOT the OR of those days' columns.
+        public BitSet presentAmong(LocalDate from, LocalDate to, BitSet who) {
+            build();
+            BitSet present = (BitSet) who.clone(), away = new BitSet();
+            boolean[] working = {false};
+            TeamCapacity.forEachYear((int) from.toEpochDay(), (int) to.toEpochDay(), (year, a, b) -> {
+                long[] work = workdays(year);
+                YearBits y = years.get(year);
+                for (int d = a; d <= b; d++) {
+                    if ((work[d >>> 6] & 1L << d) == 0) continue;
+                    working[0] = true;
+                    if (y != null && y.days[d] != null) away.or(y.days[d]);
+                }
+            });
+            if (!working[0]) return new BitSet();
+            present.andNot(away);
+            return present;
+        }
+        public BitSet members(String team) {
+            build();
+            BitSet t = team == null ? everyone : teams.get(team);
+            return t == null ? new BitSet() : (BitSet) t.clone();
+        }
+        // Teams with at least one member, by name.
+        public Set<String> teams() {
+            build();
+            return teams.keySet();
+        }
+
+        // Bits a..b (day-of-year indexes) that fall in word w.
+        private static long span(int w, int a, int b) {
+            int lo = Math.max(a, w << 6), hi = Math.min(b, (w << 6) + 63);
+            if (lo > hi) return 0;
+            int width = hi - lo + 1;
+            return (width == 64 ? -1L : (1L << width) - 1) << (lo & 63);
+        }
+        private synchronized long[] workdays(int year) {
+            long[] work = workdays.get(year);
+            if (work != null) return work;
+            if (holidaySet == null) holidaySet = holidays.get();
+            work = new long[WORDS];
+            for (LocalDate d = LocalDate.of(year, 1, 1); d.getYear() == year; d = d.plusDays(1))
+                if (d.getDayOfWeek().getValue() < DayOfWeek.SATURDAY.getValue() && !holidaySet.contains(d)) {
+                    int i = d.getDayOfYear() - 1;
+                    work[i >>> 6] |= 1L << i;
+                }
+            workdays.put(year, work);
+            return work;
+        }
+        // Lazy builds can happen under a shared read lock, so they are serialised here.
+        private synchronized void build() {
+            if (built) return;
+            int pos = 0;
+            for (User u : users) {
+                everyone.set(pos);
+                join(u.getTeam(), pos++);
+            }
+            for (LeaveRequest r : allRequests.get()) if (r.statusCode() == LeaveRequest.APPROVED) mark(r, true);
+            built = true;
+        }
+        private void mark(LeaveRequest r, boolean on) {
+            int pos = users.position(r.getEmpId());
+            if (pos < 0) return;
+            TeamCapacity.forEachYear(r.startDay(), r.endDay(), (year, a, b) -> {
+                YearBits y = years.computeIfAbsent(year, k -> new YearBits());
+                if (pos * WORDS >= y.rows.length) y.rows = Arrays.copyOf(y.rows, Math.max(y.rows.length * 2, (pos + 1) * WORDS));
+                for (int w = a >>> 6; w <= b >>> 6; w++) {
+                    if (on) y.rows[pos * WORDS + w] |= span(w, a, b);
+                    else y.rows[pos * WORDS + w] &= ~span(w, a, b);
+                }
+                for (int d = a; d <= b; d++) {
+                    if (y.days[d] == null) y.days[d] = new BitSet();
+                    y.days[d].set(pos, on);
+                }
+            });
+        }
+        // Clears r's days, then re-marks the employee's other approved requests in case they overlap
+        // (imports and old journals are not checked for overlaps).
+        private void unmark(LeaveRequest r) {
+            mark(r, false);
+            for (LeaveRequest o : employeeRequests.apply(r.getEmpId()))
+                if (o != r && o.statusCode() == LeaveRequest.APPROVED && o.startDay() <= r.endDay() && o.endDay() >= r.startDay())
+                    mark(o, true);
+        }
+    }
+
+    // ---------- Aggregates ----------
+    // Running totals for the dashboards, bumped on every status/balance change instead of rescanned.
+    // Leaves used per team (User.getTeam; the null key = no team) count employees only.
+    static class StatsStore {
+        private final Map<String, int[]> byStatus = new HashMap<>();
+        private final Map<String, long[]> leavesUsedByTeam = new HashMap<>();
+        private long totalLeavesTaken, employeeLeavesTaken;
+
+        public void requestAdded(LeaveRequest r) { bump(r.getStatus(), 1); }
+        public void requestRemoved(LeaveRequest r) { bump(r.getStatus(), -1); }
+        public void statusChanged(String oldStatus, String newStatus) {
+            bump(oldStatus, -1);
+            bump(newStatus, 1);
+        }
+        private void bump(String status, int delta) {
+            byStatus.computeIfAbsent(status, k -> new int[1])[0] += delta;
+        }
+
+        public void userAdded(User u) { addUsed(u, used(u)); }
+        public void userRemoved(User u) { addUsed(u, -used(u)); }
+        // Leaves used = allowed - balance, so a balance drop of n is n more leaves used.
+        public void balanceChanged(User u, int oldBalance, int newBalance) { addUsed(u, oldBalance - newBalance); }
+        private void addUsed(User u, long delta) {
+            totalLeavesTaken += delta;
+            if (!(u instanceof Employee)) return;
+            employeeLeavesTaken += delta;
+            leavesUsedByTeam.computeIfAbsent(u.getTeam(), k -> new long[1])[0] += delta;
+        }
+        private static int used(User u) { return u.getTotalLeavesAllowed() - u.getLeaveBalance(); }
+
+        public int count(String status) {
+            int[] c = byStatus.get(status);
+            return c == null ? 0 : c[0];
+        }
+        public long leavesUsed(String team) {
+            long[] c = leavesUsedByTeam.get(team);
+            return c == null ? 0 : c[0];
+        }
+        public long employeeLeavesTaken() { return employeeLeavesTaken; }
+        public long totalLeavesTaken() { return totalLeavesTaken; }
+
+        // Recomputes everything from scratch and lists every counter that disagrees.
+        public List<String> verify(Iterable<User> users, Collection<LeaveRequest> requests) {
+            StatsStore fresh = new StatsStore();
+            for (User u : users) fresh.userAdded(u);
+            for (LeaveRequest r : requests) fresh.requestAdded(r);
+            List<String> diffs = new ArrayList<>();
+            Set<String> statuses = new TreeSet<>(byStatus.keySet());
+            statuses.addAll(fresh.byStatus.keySet());
+            for (String st : statuses)
+                if (count(st) != fresh.count(st))
+                    diffs.add("Status " + st + ": counter=" + count(st) + ", actual=" + fresh.count(st));
+            Set<String> teams = new HashSet<>(leavesUsedByTeam.keySet());
+            teams.addAll(fresh.leavesUsedByTeam.keySet());
+            for (String t : teams) {
+                long mine = leavesUsed(t), actual = fresh.leavesUsed(t);
+                if (mine != actual)
+                    diffs.add("Leaves used (" + (t == null ? "no team" : t) + "): counter=" + mine + ", actual=" + actual);
+            }
+            if (employeeLeavesTaken != fresh.employeeLeavesTaken)
+                diffs.add("Employee leaves taken: counter=" + employeeLeavesTaken + ", actual=" + fresh.employeeLeavesTaken);
+            if (totalLeavesTaken != fresh.totalLeavesTaken)
+                diffs.add("Total leaves taken: counter=" + totalLeavesTaken + ", actual=" + fresh.totalLeavesTaken);
+            return diffs;
+        }
+    }
+
+    // ---------- Leave Profiles ----------
+    // Per-employee request counters for the predictors, bumped in addRequest/removeRequest instead
+    // of rescanning history: by type, by start weekday and month, and by type per season. Every
+    // request counts whatever its status, as LeavePatternPredictor always did.
+    static class LeaveProfiles {
+        static final int TYPES = 5, SEASONS = 4;
+        // One flat array per employee: [total][type x5][weekday x7, Monday first][month x12][type x season x20].
+        private static final int TYPE = 1, DOW = TYPE + TYPES, MONTH = DOW + 7, SEASON = MONTH + 12, SIZE = SEASON + TYPES * SEASONS;
+
+        private final IntMap<int[]> byEmp = new IntMap<>();
+
+        public void requestAdded(LeaveRequest r) { bump(r, 1); }
+        public void requestRemoved(LeaveRequest r) { bump(r, -1); }
+        private void bump(LeaveRequest r, int d) {
+            int[] p = byEmp.get(r.getEmpId());
+            if (p == null) {
+                if (d < 0) return;
+                byEmp.put(r.getEmpId(), p = new int[SIZE]);
+            }
+            int t = r.typeCode(), month = LocalDate.ofEpochDay(r.startDay()).getMonthValue();
+            p[0] += d;
+            p[TYPE + t] += d;
+            p[DOW + Math.floorMod(r.startDay() + 3, 7)] += d; // 1970-01-01 was a Thursday
+            p[MONTH + month - 1] += d;
+            p[SEASON + t * SEASONS + season(month)] += d;
+        }
+        // 0 = Dec-Feb, 1 = Mar-May, 2 = Jun-Aug, 3 = Sep-Nov.
+        static int season(int month) { return month % 12 / 3; }
+
+        // Readers go through these; null/0 when the employee has no requests.
+        int[] of(int empId) { return byEmp.get(empId); }
+        static int total(int[] p) { return p == null ? 0 : p[0]; }
+        static int byType(int[] p, int type) { return p == null ? 0 : p[TYPE + type]; }
+        static int byWeekday(int[] p, int mondayZero) { return p == null ? 0 : p[DOW + mondayZero]; }
+        static int byMonth(int[] p, int month) { return p == null ? 0 : p[MONTH + month - 1]; }
+        static int byTypeAndSeason(int[] p, int type, int season) { return p == null ? 0 : p[SEASON + type * SEASONS + season]; }
+    }
+
+    // ---------- Journal ----------
+    // Append-only write-ahead log. Each record is framed as [length][crc32][payload] and is
+    // durable (fsync'd) before append() returns. Concurrent appenders share fsyncs: whoever
+    // finds no sync in flight forces everything written so far, the rest just wait for it.
+    // The file starts with [magic][epoch]; a snapshot taken at epoch E makes every journal
+    // of an older epoch obsolete (see Snapshot).
+    static class Journal implements Closeable {
+        static final byte USER = 1, APPLY = 2, CANCEL = 3, EDIT = 4, APPROVE = 5, REJECT = 6,
+                BALANCE = 7, FEEDBACK = 8, LOGIN = 9, IMPORT_USER = 10, IMPORT_REQUEST = 11, TEAM = 12, TEAM_LIMIT = 13, PASSWORD = 14;
+        private static final int MAGIC = 0x534C4A31; // "SLJ1"
+        private static final int FILE_HEADER = 12, HEADER = 8, MAX_RECORD = 1 << 24;
+
+        interface RecordHandler { void accept(DataInput in) throws IOException; }
+        interface Action { void run() throws IOException; }
+
+        private final FileChannel channel;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition synced = lock.newCondition();
+        private final CRC32 crc = new CRC32();
+        private long epoch, written, durable, syncs, inFile;
+        private boolean syncing;
+        private IOException failure;
+
+        private Journal(FileChannel channel) { this.channel = channel; }
+
+        // Opens (or creates) the log, feeds every intact record to handler in order, and cuts off
+        // a torn or corrupt tail left by a crash so new records follow the last good one.
+        // A journal older than minEpoch is already covered by the snapshot and is discarded unread.
+        static Journal open(Path file, long minEpoch, RecordHandler handler) throws IOException {
+            FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                Journal j = new Journal(ch);
+                ByteBuffer head = ByteBuffer.allocate(FILE_HEADER);
+                while (head.hasRemaining() && ch.read(head, head.position()) > 0) { }
+                if (head.position() < FILE_HEADER) { j.reset(minEpoch); return j; }
+                head.flip();
+                if (head.getInt() != MAGIC) throw new IOException(file + " is not a leave journal");
+                j.epoch = head.getLong();
+                if (j.epoch > minEpoch)
+                    throw new IOException("journal epoch " + j.epoch + " is newer than the snapshot (" + minEpoch + "); snapshot missing?");
+                if (j.epoch < minEpoch) {
+                    printlnInfo("Journal epoch " + j.epoch + " is already in the snapshot, starting a fresh one.");
+                    j.reset(minEpoch);
+                    return j;
+                }
+                return j.replay(handler);
+            } catch (IOException | RuntimeException e) {
+                ch.close();
+                throw e;
+            }
+        }
+        private Journal replay(RecordHandler handler) throws IOException {
+            long good = FILE_HEADER, size = channel.size();
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(good)), 1 << 16));
+            CRC32 check = new CRC32();
+            while (good + HEADER <= size) {
+                int len = in.readInt();
+                int sum = in.readInt();
+                if (len <= 0 || len > MAX_RECORD || good + HEADER + len > size) break;
+                byte[] payload = new byte[len];
+                in.readFully(payload);
+                check.reset();
+                check.update(payload, 0, len);
+                if ((int) check.getValue() != sum) break;
+                handler.accept(new DataInputStream(new ByteArrayInputStream(payload)));
+                good += HEADER + len;
+                inFile++;
+            }
+            if (good < size) {
+                printlnInfo("Journal: dropping " + (size - good) + " bytes of incomplete/corrupt tail.");
+                channel.truncate(good);
+                channel.force(true);
+            }
+            channel.position(good);
+            return this;
+        }
+
+        public void append(byte[] payload) throws IOException { appendAll(List.of(payload)); }
+
+        // Writes the records back to back and returns once all of them are durable.
+        public void appendAll(List<byte[]> payloads) throws IOException { awaitDurable(write(payloads)); }
+
+        // Writes the records without waiting for the disk; returns the sequence to pass to awaitDurable.
+        public long write(List<byte[]> payloads) throws IOException {
+            int total = 0;
+            for (byte[] p : payloads) total += HEADER + p.length;
+            ByteBuffer buf = ByteBuffer.allocate(total);
+            lock.lock();
+            try {
+                if (failure != null) throw new IOException("journal unusable after an earlier failure", failure);
+                for (byte[] p : payloads) {
+                    crc.reset();
+                    crc.update(p, 0, p.length);
+                    buf.putInt(p.length).putInt((int) crc.getValue()).put(p);
+                }
+                buf.flip();
+                try {
+                    while (buf.hasRemaining()) channel.write(buf);
+                } catch (IOException e) {
+                    failure = e; // a partial record may be on disk; nothing may follow it
+                    throw e;
+                }
+                written += payloads.size();
+                inFile += payloads.size();
+                return written;
+            } finally {
+                lock.unlock();
+            }
+        }
+        // Group commit: one fsync covers every record written before it started, so concurrent
+        // callers mostly find their record already durable or share the next sync.
+        // A failed sync fails every record not yet durable and the journal refuses further writes:
+        // what reached the disk is unknown, so memory must not move on from it.
+        public void awaitDurable(long seq) throws IOException {
+            lock.lock();
+            try {
+                while (durable < seq) {
+                    if (failure != null) throw new IOException("journal unusable after an earlier failure", failure);
+                    if (syncing) { synced.awaitUninterruptibly(); continue; }
+                    syncing = true;
+                    long target = written;
+                    IOException err = null;
+                    lock.unlock();
+                    try {
+                        channel.force(false);
+                    } catch (IOException e) {
+                        err = e;
+                    } finally {
+                        lock.lock();
+                        syncing = false;
+                        if (err != null && failure == null) failure = err;
+                        synced.signalAll();
+                    }
+                    if (err != null) throw err;
+                    durable = Math.max(durable, target);
+                    syncs++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        // Runs action with writes held off, but only if no record after upTo has been written;
+        // returns false (without running it) while later records are still in flight.
+        public boolean ifQuiet(long upTo, Action action) throws IOException {
+            lock.lock();
+            try {
+                if (written != upTo) return false;
+                action.run();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Empties the log and starts epoch newEpoch. Truncate comes first: a crash in between leaves
+        // an empty file, which open() treats as a fresh journal at the snapshot's epoch.
+        // Callers must make sure no appends are in flight (snapshots are taken between operations).
+        public void reset(long newEpoch) throws IOException {
+            lock.lock();
+            try {
+                channel.truncate(0);
+                ByteBuffer head = ByteBuffer.allocate(FILE_HEADER);
+                head.putInt(MAGIC).putLong(newEpoch).flip();
+                while (head.hasRemaining()) channel.write(head, head.position());
+                channel.force(true);
+                channel.position(FILE_HEADER);
+                epoch = newEpoch;
+                inFile = 0;
+            } catch (IOException e) {
+                // The snapshot may already supersede this file; appending to it now would lose data.
+                failure = e;
+                throw e;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public long epoch() { return epoch; }
+        public long records() { return written; }
+        public long recordsInFile() { return inFile; }
+        public long syncs() { return syncs; }
+
+        @Override
+        public void close() throws IOException { channel.close(); }
+    }
+
+    // ---------- Snapshots ----------
+    // Compact binary image of users, requests and feedback, tagged with the journal epoch it
+    // replaces. Written to a temp file, fsync'd and renamed over the old one, then read back
+    // through memory-mapped windows so loading is one sequential pass over the page cache.
+    static class Snapshot {
+        private static final int MAGIC = 0x534C5331; // "SLS1"
+        private static final int WINDOW = 64 << 20;
+
+        static void write(Path file, long epoch, SmartLeaveSystem sys) throws IOException {
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                CRC32 crc = new CRC32();
+                DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(ch), 1 << 16), crc));
+                out.writeInt(MAGIC);
+                out.writeLong(epoch);
+                out.writeLong(sys.chain == null ? 0 : sys.chain.size());
+                out.writeInt(LeaveRequest.nextId());
+                out.writeInt(sys.users.size());
+                out.writeInt(sys.requests.size());
+                out.writeInt(sys.feedbacks.size());
+                for (User u : sys.users) {
+                    out.writeByte(roleCode(u));
+                    out.writeInt(u.getEmpId());
+                    out.writeInt(u.getLeaveBalance());
+                    out.writeInt(u.getBadges());
+                    writeStr(out, u.getName());
+                    writeStr(out, u.getEmail());
+                    writeStr(out, u.getPassword());
+                    writeStr(out, u.getLastLogin());
+                    writeStr(out, u.getTeam());
+                    out.writeBoolean(u.mustChangePassword());
+                }
+                char[] day = new char[LeaveRequest.DAY_CHARS];
+                for (LeaveRequest r : sys.requests.values()) {
+                    out.writeInt(r.getReqId());
+                    out.writeInt(r.getEmpId());
+                    out.writeInt(r.getRequestedDays());
+                    out.writeLong(r.getAuditSeq());
+                    writeStr(out, r.getStatus());
+                    writeDay(out, r.startDay(), day);
+                    writeDay(out, r.endDay(), day);
+                    writeStr(out, r.getType());
+                    writeStr(out, r.getComments());
+                }
+                for (HRFeedback fb : sys.feedbacks) {
+                    writeStr(out, fb.getEmpName());
+                    writeStr(out, fb.getMessage());
+                }
+                out.writeInt(sys.teamLimits.size());
+                for (Map.Entry<String, Integer> e : sys.teamLimits.entrySet()) {
+                    writeStr(out, e.getKey());
+                    out.writeInt(e.getValue());
+                }
+                out.flush();
+                new DataOutputStream(Channels.newOutputStream(ch)).writeInt((int) crc.getValue());
+                ch.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        private static void writeStr(DataOutputStream out, String s) throws IOException {
+            byte[] b = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+            out.writeInt(b.length);
+            out.write(b);
+        }
+        // Same bytes as writeStr(out, LocalDate.ofEpochDay(epochDay).toString()); scratch holds the digits.
+        private static void writeDay(DataOutputStream out, int epochDay, char[] scratch) throws IOException {
+            if (!LeaveRequest.formatDay(epochDay, scratch, 0)) { writeStr(out, LocalDate.ofEpochDay(epochDay).toString()); return; }
+            out.writeInt(LeaveRequest.DAY_CHARS);
+            for (char c : scratch) out.write(c);
+        }
+
+        static final class Header {
+            final long epoch, auditBlocks;
+            Header(long epoch, long auditBlocks) { this.epoch = epoch; this.auditBlocks = auditBlocks; }
+        }
+
+        // Loads the snapshot into sys (which must be empty); epoch 0 means there was none.
+        static Header read(Path file, SmartLeaveSystem sys) throws IOException {
+            if (!Files.exists(file)) return new Header(0, 0);
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedReader in = new MappedReader(ch);
+                in.verifyChecksum();
+                if (in.getInt() != MAGIC) throw new IOException(file + " is not a leave snapshot");
+                long epoch = in.getLong();
+                long auditBlocks = in.getLong();
+                int counter = in.getInt();
+                int nUsers = in.getInt(), nRequests = in.getInt(), nFeedback = in.getInt();
+                for (int i = 0; i < nUsers; i++) {
+                    byte role = in.get();
+                    int id = in.getInt(), balance = in.getInt(), badges = in.getInt();
+                    User u = newUser(role, id, in.getStr(), in.getStr(), in.getStr(), balance);
+                    u.setBadges(badges);
+                    u.setLastLogin(in.getStr());
+                    u.setTeam(teamName(in.getStr()));
+                    u.setMustChangePassword(in.get() != 0);
+                    sys.addUser(u);
+                }
+                for (int i = 0; i < nRequests; i++) {
+                    int reqId = in.getInt(), empId = in.getInt(), days = in.getInt();
+                    long auditSeq = in.getLong();
+                    String status = knownStatus(in.getStr());
+                    LeaveRequest r = new LeaveRequest(reqId, empId, in.getStr(), in.getStr(), in.getStr(), in.getStr(), days);
+                    r.setStatus(status);
+                    r.setAuditSeq(auditSeq);
+                    sys.addRequest(r);
+                }
+                for (int i = 0; i < nFeedback; i++)
+                    sys.feedbacks.add(new HRFeedback(in.getStr(), in.getStr()));
+                for (int i = 0, n = in.getInt(); i < n; i++)
+                    sys.setTeamLimit(in.getStr(), in.getInt());
+                LeaveRequest.reserveIdsBelow(counter);
+                return new Header(epoch, auditBlocks);
+            }
+        }
+        // Share the handful of status strings instead of keeping millions of copies.
+        private static String knownStatus(String s) {
+            switch (s) {
+                case "PENDING": return "PENDING";
+                case "APPROVED": return "APPROVED";
+                case "REJECTED": return "REJECTED";
+                default: return s;
+            }
+        }
+
+        // Sequential reader over a file mapped in WINDOW-sized slices (a single mapping tops out at 2 GB).
+        private static class MappedReader {
+            private final FileChannel ch;
+            private final long size;
+            private long base;
+            private MappedByteBuffer buf;
+            private byte[] scratch = new byte[256];
+
+            MappedReader(FileChannel ch) throws IOException {
+                this.ch = ch;
+                this.size = ch.size() - 4; // trailing crc32
+                if (size < 0) throw new EOFException("truncated snapshot");
+                map(0);
+            }
+            private void map(long at) throws IOException {
+                base = at;
+                buf = ch.map(FileChannel.MapMode.READ_ONLY, at, Math.min(WINDOW, size - at));
+            }
+            private void ensure(int n) throws IOException {
+                if (buf.remaining() >= n) return;
+                map(base + buf.position());
+                if (buf.remaining() < n) throw new EOFException("truncated snapshot");
+            }
+            void verifyChecksum() throws IOException {
+                CRC32 crc = new CRC32();
+                for (long at = 0; at < size; at += WINDOW)
+                    crc.update(ch.map(FileChannel.MapMode.READ_ONLY, at, Math.min(WINDOW, size - at)));
+                ByteBuffer tail = ByteBuffer.allocate(4);
+                while (tail.hasRemaining() && ch.read(tail, size + tail.position()) > 0) { }
+                if (tail.flip().getInt() != (int) crc.getValue()) throw new IOException("snapshot checksum mismatch");
+            }
+            byte get() throws IOException { ensure(1); return buf.get(); }
+            int getInt() throws IOException { ensure(4); return buf.getInt(); }
+            long getLong() throws IOException { ensure(8); return buf.getLong(); }
+            String getStr() throws IOException {
+                int n = getInt();
+                if (n < 0) throw new IOException("corrupt snapshot string");
+                ensure(n);
+                if (n > scratch.length) scratch = new byte[Math.max(n, scratch.length * 2)];
+                buf.get(scratch, 0, n);
+                return new String(scratch, 0, n, StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    // ---------- Bulk Import ----------
+    // Loads the CSV layouts written by writeEmployeeCSV / writeLeaveCSV. Chunks of rows are parsed
+    // and validated in parallel on the common fork-join pool, then applied in file order on the
+    // calling thread (one journal batch and one fsync per chunk). Bad rows are reported, not fatal.
+    static class BulkImporter {
+        static final String USER_HEADER = "EmpID,Name,Email,TotalAllowed,LeaveBalance,Badges,LastLogin,Team";
+        // Files written before teams existed have no Team column; their users get no team.
+        static final String USER_HEADER_NO_TEAM = USER_HEADER.substring(0, USER_HEADER.lastIndexOf(','));
+        static final String LEAVE_HEADER = "ReqID,EmpID,Start,End,Days,Type,Status,Comments";
+        static final int CHUNK_ROWS = 20_000;
+        static final int MAX_ERRORS_KEPT = 100_000;
+
+        static class Report {
+            final String file;
+            long rows, imported, rejected, millis;
+            final List<String> errors = new ArrayList<>();
+            final List<String> passwords = new ArrayList<>(); // "EmpID,Email,OneTimePassword" per imported account
+            Report(String file) { this.file = file; }
+            void reject(long line, String why) {
+                rejected++;
+                if (errors.size() < MAX_ERRORS_KEPT) errors.add("line " + line + ": " + why);
+            }
+        }
+        private static class Chunk {
+            final long firstLine;
+            final Object[] parsed;
+            final String[] errors;
+            Chunk(long firstLine, int n) { this.firstLine = firstLine; parsed = new Object[n]; errors = new String[n]; }
+        }
+        private static class RequestRow {
+            int reqId, empId, days, startDay, endDay;
+            String start, end, type, status, comments;
+            byte[] record;
+        }
+        private static class UserRow {
+            User user;
+            byte[] record, teamRecord, passwordRecord; // teamRecord null = no team
+        }
+        interface RowParser { Object parse(String line); } // throws IllegalArgumentException with the reason
+        interface ChunkApplier { void apply(Chunk chunk, Report rep) throws IOException; }
+
+        private final SmartLeaveSystem sys;
+        BulkImporter(SmartLeaveSystem sys) { this.sys = sys; }
+
+        Report importUsers(Path file) throws IOException {
+            return run(file, new String[]{USER_HEADER, USER_HEADER_NO_TEAM}, BulkImporter::parseUser, this::applyUsers);
+        }
+        Report importRequests(Path file) throws IOException {
+            return run(file, new String[]{LEAVE_HEADER}, BulkImporter::parseRequest, this::applyRequests);
+        }
+
+        // headers = the accepted header lines, the current layout first.
+        private Report run(Path file, String[] headers, RowParser parser, ChunkApplier applier) throws IOException {
+            Report rep = new Report(file.toString());
+            long t0 = System.nanoTime();
+            int maxInFlight = 2 * ForkJoinPool.getCommonPoolParallelism() + 1;
+            ArrayDeque<CompletableFuture<Chunk>> inFlight = new ArrayDeque<>();
+            try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String first = in.readLine();
+                if (first == null) return rep;
+                String header = first.replace("\uFEFF", "").trim();
+                if (Arrays.stream(headers).noneMatch(header::equalsIgnoreCase))
+                    throw new IOException("unexpected header in " + file + ", expected: " + String.join(" or ", headers));
+                long lineNo = 1;
+                while (true) {
+                    List<String> lines = new ArrayList<>(CHUNK_ROWS);
+                    String line;
+                    while (lines.size() < CHUNK_ROWS && (line = in.readLine()) != null) lines.add(line);
+                    if (lines.isEmpty()) break;
+                    long firstLine = lineNo + 1;
+                    lineNo += lines.size();
+                    rep.rows += lines.size();
+                    inFlight.add(CompletableFuture.supplyAsync(() -> parseChunk(firstLine, lines, parser)));
+                    if (inFlight.size() >= maxInFlight) applyExclusive(applier, inFlight.poll().join(), rep);
+                }
+                while (!inFlight.isEmpty()) applyExclusive(applier, inFlight.poll().join(), rep);
+            }
+            rep.millis = (System.nanoTime() - t0) / 1_000_000;
+            return rep;
+        }
+        private void applyExclusive(ChunkApplier applier, Chunk chunk, Report rep) throws IOException {
+            sys.lockAll();
+            try { applier.apply(chunk, rep); }
+            finally { sys.unlockAll(); }
+        }
+        private static Chunk parseChunk(long firstLine, List<String> lines, RowParser parser) {
+            Chunk c = new Chunk(firstLine, lines.size());
+            for (int i = 0; i < lines.size(); i++) {
+                String line = lines.get(i);
+                if (line.isBlank()) { c.errors[i] = "blank line"; continue; }
+                try { c.parsed[i] = parser.parse(line); }
+                catch (RuntimeException e) { c.errors[i] = e.getMessage(); }
+            }
+            return c;
+        }
+
+        private static int parseIntField(String s, String what) {
+            try { return Integer.parseInt(s.trim()); }
+            catch (NumberFormatException e) { throw new IllegalArgumentException(what + " is not a number: '" + s + "'"); }
+        }
+        private static Object parseUser(String line) {
+            String[] c = line.split(",", 8);
+            if (c.length < 7) throw new IllegalArgumentException("expected 7 or 8 columns, got " + c.length);
+            int id = parseIntField(c[0], "EmpID");
+            String name = c[1].trim(), email = c[2].trim();
+            if (name.isEmpty()) throw new IllegalArgumentException("empty name");
+            if (!InputValidator.isValidEmail(email)) throw new IllegalArgumentException("invalid email '" + email + "'");
+            int allowed = parseIntField(c[3], "TotalAllowed");
+            if (allowed != DEFAULT_LEAVES_PER_YEAR)
+                throw new IllegalArgumentException("TotalAllowed must be " + DEFAULT_LEAVES_PER_YEAR + " (per-employee allowances are not supported), got " + allowed);
+            int balance = parseIntField(c[4], "LeaveBalance");
+            int badges = parseIntField(c[5], "Badges");
+            String password = oneTimePassword();
+            User u = new Employee(id, name, email, password, balance);
+            u.setMustChangePassword(true);
+            u.setBadges(badges);
+            u.setLastLogin(c[6].trim().isEmpty() ? "Never" : c[6].trim());
+            u.setTeam(c.length > 7 ? teamName(c[7]) : null);
+            UserRow row = new UserRow();
+            row.user = u;
+            row.record = encode(Journal.IMPORT_USER, out -> writeImportedUser(out, u));
+            if (u.getTeam() != null) row.teamRecord = encode(Journal.TEAM, out -> { out.writeInt(id); out.writeUTF(u.getTeam()); });
+            row.passwordRecord = encode(Journal.PASSWORD, out -> writePassword(out, id, password, true));
+            return row;
+        }
+        // Journal records are encoded here, on the worker threads, rather than in the sequential apply.
+        private static byte[] encode(byte op, RecordWriter body) {
+            try { return encodeRecord(op, body); }
+            catch (IOException e) { throw new UncheckedIOException(e); }
+        }
+        // Imported accounts have no password column; each gets a random one that must be changed at first login.
+        private static final SecureRandom RANDOM = new SecureRandom();
+        private static final String PASSWORD_CHARS = "ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnpqrstuvwxyz23456789";
+        static String oneTimePassword() {
+            char[] pw = new char[12];
+            for (int i = 0; i < pw.length; i++) pw[i] = PASSWORD_CHARS.charAt(RANDOM.nextInt(PASSWORD_CHARS.length()));
+            pw[RANDOM.nextInt(pw.length)] = (char) ('2' + RANDOM.nextInt(8)); // always at least one digit
+            return new String(pw);
+        }
+
+        private static Object parseRequest(String line) {
+            String[] c = line.split(",", 8);
+            if (c.length < 8) throw new IllegalArgumentException("expected 8 columns, got " + c.length);
+            RequestRow r = new RequestRow();
+            r.reqId = parseIntField(c[0], "ReqID");
+            r.empId = parseIntField(c[1], "EmpID");
+            r.start = c[2].trim();
+            r.end = c[3].trim();
+            if (!InputValidator.isValidDate(r.start)) throw new IllegalArgumentException("invalid start date '" + r.start + "'");
+            if (!InputValidator.isValidDate(r.end)) throw new IllegalArgumentException("invalid end date '" + r.end + "'");
+            r.days = parseIntField(c[4], "Days");
+            r.startDay = (int) LocalDate.parse(r.start).toEpochDay();
+            r.endDay = (int) LocalDate.parse(r.end).toEpochDay();
+            long span = r.endDay - r.startDay + 1;
+            if (span < 1) throw new IllegalArgumentException("end before start");
+            if (r.days != span) throw new IllegalArgumentException("Days=" + r.days + " but range covers " + span);
+            r.type = c[5].trim();
+            r.status = Snapshot.knownStatus(c[6].trim().toUpperCase(Locale.ROOT));
+            if (!r.status.equals("PENDING") && !r.status.equals("APPROVED") && !r.status.equals("REJECTED"))
+                throw new IllegalArgumentException("unknown status '" + c[6] + "'");
+            r.comments = c[7];
+            r.record = encode(Journal.IMPORT_REQUEST, out -> {
+                out.writeInt(r.reqId); out.writeInt(r.empId);
+                out.writeUTF(r.start); out.writeUTF(r.end);
+                out.writeUTF(r.type); out.writeUTF(r.comments);
+                out.writeInt(r.days);
+                out.writeUTF(r.status);
+            });
+            return r;
+        }
+
+        private void applyUsers(Chunk c, Report rep) throws IOException {
+            List<User> ok = new ArrayList<>();
+            List<byte[]> records = new ArrayList<>();
+            Map<String, Integer> claimed = new HashMap<>();
+            for (int i = 0; i < c.parsed.length; i++) {
+                long line = c.firstLine + i;
+                if (c.parsed[i] == null) { rep.reject(line, c.errors[i]); continue; }
+                UserRow row = (UserRow) c.parsed[i];
+                User u = row.user;
+                String key = UserDirectory.emailKey(u.getEmail());
+                User owner = sys.users.byEmail(key);
+                Integer claimedBy = claimed.putIfAbsent(key, u.getEmpId());
+                if ((owner != null && owner.getEmpId() != u.getEmpId()) || (claimedBy != null && claimedBy != u.getEmpId())) {
+                    rep.reject(line, "email " + u.getEmail() + " already belongs to another employee");
+                    continue;
+                }
+                ok.add(u);
+                records.add(row.record);
+                if (row.teamRecord != null) records.add(row.teamRecord);
+                records.add(row.passwordRecord);
+            }
+            sys.appendExclusive(records);
+            for (User u : ok) {
+                sys.addUser(u);
+                rep.passwords.add(u.getEmpId() + "," + u.getEmail() + "," + u.getPassword());
+            }
+            rep.imported += ok.size();
+        }
+        private void applyRequests(Chunk c, Report rep) throws IOException {
+            List<LeaveRequest> ok = new ArrayList<>();
+            List<byte[]> records = new ArrayList<>();
+            Set<Integer> seen = new HashSet<>();
+            for (int i = 0; i < c.parsed.length; i++) {
+                long line = c.firstLine + i;
+                if (c.parsed[i] == null) { rep.reject(line, c.errors[i]); continue; }
+                RequestRow row = (RequestRow) c.parsed[i];
+                if (sys.getUserById(row.empId) == null) { rep.reject(line, "unknown EmpID " + row.empId); continue; }
+                if (sys.requestIndex.byReqId(row.reqId) != null || !seen.add(row.reqId)) {
+                    rep.reject(line, "duplicate ReqID " + row.reqId);
+                    continue;
+                }
+                LeaveRequest r = new LeaveRequest(row.reqId, row.empId, row.startDay, row.endDay, row.type, row.comments, row.days);
+                r.setStatus(row.status);
+                ok.add(r);
+                records.add(row.record);
+            }
+            sys.appendExclusive(records);
+            for (LeaveRequest r : ok) sys.doImport(r);
+            rep.imported += ok.size();
+        }
+    }
+
+    // ---------- Audit Chain ----------
+    // Append-only SHA-256 chain over request state transitions, persisted as fixed 128-byte blocks:
+    //   [seq:8][reqId:4][empId:4][days:4][event:1][from:1][to:1][0:1][start:10][end:10][type:20]  (body, 64 bytes)
+    //   [prevHash:32][hash:32]    hash = SHA-256(body || prevHash)
+    // Blocks are derived only from journaled state changes, so replay regenerates them byte for byte:
+    // after a crash any blocks that never reached the disk are rewritten, and blocks that are already
+    // there are compared instead of trusted. The .chk file remembers how far the chain was last verified.
+    static class AuditChain implements Closeable {
+        static final int BLOCK = 128, BODY = 64, HASH = 32;
+        static final byte APPLY = 1, CANCEL = 2, APPROVE = 3, REJECT = 4, IMPORT = 5;
+        private static final String[] EVENTS = {"?", "APPLY", "CANCEL", "APPROVE", "REJECT", "IMPORT"};
+        private static final String[] STATES = {"-", "PENDING", "APPROVED", "REJECTED", "CANCELLED"};
+        private static final int BATCH = 8192; // blocks per read while verifying
+        private static final int MIN_SEGMENT = 64 * 1024; // blocks; smaller ranges are not worth forking
+
+        private final FileChannel ch;
+        private final Path checkpointFile;
+        private final MessageDigest sha;
+        private final ByteBuffer block = ByteBuffer.allocate(BLOCK), existing = ByteBuffer.allocate(BLOCK);
+        private final char[] day = new char[LeaveRequest.DAY_CHARS];
+        private long onDisk;               // whole blocks in the file
+        private long size;                 // blocks derived from the state loaded so far
+        private byte[] head = new byte[HASH];
+        private long verified;             // blocks [0, verified) passed an earlier verify
+        private byte[] verifiedHead = new byte[HASH];
+        private MerkleTree merkle;         // built on first proof request, then kept up to date
+        private IntMap<long[]> blocksByReq;
+
+        static final class Block {
+            final long seq;
+            final int reqId, empId, days;
+            final byte event, from, to;
+            final String start, end, type;
+            final byte[] prev = new byte[HASH], hash = new byte[HASH];
+
+            Block(ByteBuffer b) {
+                seq = b.getLong(); reqId = b.getInt(); empId = b.getInt(); days = b.getInt();
+                event = b.get(); from = b.get(); to = b.get(); b.get();
+                start = getFixed(b, 10); end = getFixed(b, 10); type = getFixed(b, 20);
+                b.get(prev).get(hash);
+            }
+            String event() { return event >= 0 && event < EVENTS.length ? EVENTS[event] : "?"; }
+            String transition() { return state(from) + " -> " + state(to); }
+            private static String state(byte s) { return s >= 0 && s < STATES.length ? STATES[s] : "?"; }
+        }
+
+        static final class Report {
+            final long from, to;
+            long firstBad = -1, millis;
+            int threads = 1;
+            String reason;
+            Report(long from, long to) { this.from = from; this.to = to; }
+            boolean ok() { return firstBad < 0; }
+            void fail(long seq, String why) { firstBad = seq; reason = why; }
+            long blocksPerSec() { return millis == 0 ? (to - from) * 1000 : (to - from) * 1000 / millis; }
+        }
+
+        // expected = blocks the loaded snapshot already accounts for; the journal replay supplies the rest.
+        static AuditChain open(Path file, long expected) throws IOException {
+            FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                return new AuditChain(ch, file.resolveSibling(file.getFileName() + ".chk"), expected);
+            } catch (IOException | RuntimeException e) {
+                ch.close();
+                throw e;
+            }
+        }
+        private AuditChain(FileChannel ch, Path checkpointFile, long expected) throws IOException {
+            this.ch = ch;
+            this.checkpointFile = checkpointFile;
+            sha = MerkleTree.sha256();
+            onDisk = ch.size() / BLOCK;
+            if (ch.size() % BLOCK != 0) ch.truncate(onDisk * BLOCK); // torn block; replay rewrites it
+            if (onDisk < expected)
+                throw new IOException("audit chain has " + onDisk + " blocks but the snapshot expects " + expected);
+            size = expected;
+            if (size > 0) head = read(size - 1).hash;
+            loadCheckpoint();
+        }
+
+        synchronized long size() { return size; }
+
+        synchronized long append(LeaveRequest r, byte event, String from, String to) throws IOException {
+            long seq = size;
+            block.clear();
+            block.putLong(seq).putInt(r.getReqId()).putInt(r.getEmpId()).putInt(r.getRequestedDays())
+                 .put(event).put(stateCode(from)).put(stateCode(to)).put((byte) 0);
+            putDay(block, r.startDay());
+            putDay(block, r.endDay());
+            putFixed(block, r.getType(), 20);
+            block.put(head);
+            sha.update(block.array(), 0, BODY + HASH);
+            byte[] hash = sha.digest();
+            block.put(hash).flip();
+            if (seq < onDisk) { // replay over blocks already on disk: they must match exactly
+                existing.clear();
+                readFully(existing, seq * BLOCK);
+                if (!Arrays.equals(existing.array(), block.array()))
+                    throw new IOException(diverged("block #" + seq + " does not match the journal"));
+                block.position(BLOCK);
+            }
+            while (block.hasRemaining()) ch.write(block, seq * BLOCK + block.position());
+            if (seq >= onDisk) onDisk = seq + 1;
+            size = seq + 1;
+            head = hash;
+            r.setAuditSeq(seq);
+            if (merkle != null) index(block.array(), 0, seq);
+            return seq;
+        }
+
+        // Called once replay is done. Every block is written after its journal record is durable, so
+        // blocks the journal does not account for mean the chain records some other history.
+        synchronized void finishReplay() throws IOException {
+            if (onDisk > size) throw new IOException(diverged((onDisk - size) + " block(s) past the last journal record"));
+        }
+        // A chain that disagrees with the journal is evidence, so it is never cut back or rewritten.
+        private static String diverged(String what) {
+            return "audit chain diverges from the journal: " + what + ". The file was left untouched; restore the"
+                    + " chain that belongs to this snapshot and journal, or move all three store files aside";
+        }
+
+        // Re-hashes blocks from the last verified checkpoint (or from genesis when full) and reports the first bad one.
+        // With a pool the range is split into segments that are hashed concurrently; every segment
+        // checks its first block's link against the stored hash of the block before it, so together
+        // the segments check exactly the links a serial pass would.
+        synchronized Report verify(boolean full, ForkJoinPool pool) throws IOException {
+            long t0 = System.nanoTime();
+            long from = full ? 0 : verified;
+            Report rep = new Report(from, size);
+            if (from > 0 && !Arrays.equals(read(from - 1).hash, verifiedHead)) {
+                rep.fail(from - 1, "block changed since it was last verified");
+            } else if (from < size) {
+                byte[] start = from == 0 ? new byte[HASH] : verifiedHead;
+                AtomicLong firstBad = new AtomicLong(Long.MAX_VALUE);
+                Report seg;
+                if (pool == null || size - from <= MIN_SEGMENT) {
+                    seg = scan(from, size, start, sha, firstBad);
+                } else {
+                    rep.threads = pool.getParallelism();
+                    try { seg = pool.invoke(new VerifyTask(from, size, start, firstBad)); }
+                    catch (UncheckedIOException e) { throw e.getCause(); }
+                }
+                if (!seg.ok()) rep.fail(seg.firstBad, seg.reason);
+            }
+            if (rep.ok() && size > verified) {
+                verified = size;
+                verifiedHead = read(size - 1).hash;
+                saveCheckpoint();
+            }
+            rep.millis = (System.nanoTime() - t0) / 1_000_000;
+            Metrics.record(Metrics.Op.VERIFY_CHAIN, t0, rep.ok());
+            return rep;
+        }
+
+        private final class VerifyTask extends RecursiveTask<Report> {
+            private static final long serialVersionUID = 1L;
+            private final long lo, hi;
+            private final byte[] prev; // hash linking into lo, or null to read it from block lo - 1
+            private final AtomicLong firstBad;
+            VerifyTask(long lo, long hi, byte[] prev, AtomicLong firstBad) {
+                this.lo = lo; this.hi = hi; this.prev = prev; this.firstBad = firstBad;
+            }
+            @Override
+            protected Report compute() {
+                try {
+                    if (hi - lo <= MIN_SEGMENT)
+                        return scan(lo, hi, prev != null ? prev : rawHash(lo - 1), MerkleTree.sha256(), firstBad);
+                    long mid = lo + (hi - lo) / 2;
+                    VerifyTask right = new VerifyTask(mid, hi, null, firstBad);
+                    right.fork();
+                    Report left = new VerifyTask(lo, mid, prev, firstBad).compute();
+                    Report r = right.join();
+                    return left.ok() ? r : left;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        // Checks blocks [lo, hi) given the hash block lo must link to. Stops early once a lower
+        // segment has already found a bad block, since only the first one is reported.
+        private Report scan(long lo, long hi, byte[] prev, MessageDigest md, AtomicLong firstBad) throws IOException {
+            Report rep = new Report(lo, hi);
+            ByteBuffer buf = ByteBuffer.allocate(BLOCK * (int) Math.min(BATCH, hi - lo));
+            byte[] a = buf.array();
+            for (long seq = lo; seq < hi && seq < firstBad.get(); ) {
+                buf.clear().limit((int) Math.min(BATCH, hi - seq) * BLOCK);
+                readFully(buf, seq * BLOCK);
+                for (int off = 0; off < buf.limit(); off += BLOCK, seq++) {
+                    String bad = check(a, off, seq, prev, md);
+                    if (bad != null) {
+                        rep.fail(seq, bad);
+                        firstBad.accumulateAndGet(seq, Math::min);
+                        return rep;
+                    }
+                    prev = Arrays.copyOfRange(a, off + BODY + HASH, off + BLOCK);
+                }
+            }
+            return rep;
+        }
+        private static String check(byte[] a, int off, long seq, byte[] prev, MessageDigest md) {
+            if (ByteBuffer.wrap(a, off, 8).getLong() != seq) return "sequence number altered";
+            if (!Arrays.equals(a, off + BODY, off + BODY + HASH, prev, 0, HASH)) return "previous-hash link broken";
+            md.update(a, off, BODY + HASH);
+            if (!Arrays.equals(a, off + BODY + HASH, off + BLOCK, md.digest(), 0, HASH)) return "hash does not match block contents";
+            return null;
+        }
+        private byte[] rawHash(long seq) throws IOException {
+            return Arrays.copyOfRange(raw(seq), BODY + HASH, BLOCK);
+        }
+
+        // One sequential pass over the chain builds the Merkle tree and the ReqID -> blocks index.
+        private void ensureMerkle() throws IOException {
+            if (merkle != null) return;
+            if (size > Integer.MAX_VALUE) throw new IOException("audit chain too long for inclusion proofs");
+            merkle = new MerkleTree();
+            blocksByReq = new IntMap<>();
+            ByteBuffer buf = ByteBuffer.allocate(BLOCK * BATCH);
+            for (long seq = 0; seq < size; ) {
+                buf.clear().limit((int) Math.min(BATCH, size - seq) * BLOCK);
+                readFully(buf, seq * BLOCK);
+                for (int off = 0; off < buf.limit(); off += BLOCK, seq++) index(buf.array(), off, seq);
+            }
+        }
+        private void index(byte[] a, int off, long seq) {
+            merkle.append(a, off, BLOCK);
+            int reqId = ByteBuffer.wrap(a, off + 8, 4).getInt();
+            long[] seqs = blocksByReq.get(reqId);
+            seqs = seqs == null ? new long[1] : Arrays.copyOf(seqs, seqs.length + 1);
+            seqs[seqs.length - 1] = seq;
+            blocksByReq.put(reqId, seqs);
+        }
+        synchronized int blocksOf(int reqId) throws IOException {
+            ensureMerkle();
+            long[] seqs = blocksByReq.get(reqId);
+            return seqs == null ? 0 : seqs.length;
+        }
+        // Writes the inclusion proof for every block of reqId; false if the request has none.
+        synchronized boolean writeProof(ExportSink out, int reqId) throws IOException {
+            ensureMerkle();
+            long[] seqs = blocksByReq.get(reqId);
+            if (seqs == null) return false;
+            int treeSize = (int) size;
+            out.append("# Leave audit inclusion proof (SHA-256, RFC 6962 Merkle tree)\n");
+            out.append("ReqID: ").append(reqId).append('\n');
+            out.append("TreeSize: ").append(treeSize).append('\n');
+            out.append("Root: ").append(hex(merkle.root(treeSize))).append('\n');
+            for (long seq : seqs) {
+                byte[] raw = raw(seq);
+                Block b = new Block(ByteBuffer.wrap(raw));
+                out.append('\n').append("Block: ").append(seq).append('\n');
+                out.append("Event: ").append(b.event()).append(' ').append(b.transition()).append('\n');
+                out.append("Data: ").append(hex(raw)).append('\n');
+                out.append("Path: ");
+                List<byte[]> path = merkle.proof((int) seq, treeSize);
+                for (int i = 0; i < path.size(); i++) out.append(i == 0 ? "" : ",").append(hex(path.get(i)));
+                out.append('\n');
+                out.endRecord();
+            }
+            return true;
+        }
+        // Root of the chain as it stood at treeSize blocks, to tie a proof file to this chain.
+        synchronized byte[] merkleRoot(long treeSize) throws IOException {
+            ensureMerkle();
+            return merkle.root((int) treeSize);
+        }
+
+        synchronized Block read(long seq) throws IOException {
+            existing.clear();
+            readFully(existing, seq * BLOCK);
+            return new Block(existing.flip());
+        }
+        private byte[] raw(long seq) throws IOException {
+            ByteBuffer b = ByteBuffer.allocate(BLOCK);
+            readFully(b, seq * BLOCK);
+            return b.array();
+        }
+        // Hash of the request's latest block, or "-" for history that predates the chain.
+        String hashOf(LeaveRequest r) throws IOException {
+            return r.getAuditSeq() < 0 ? "-" : hex(read(r.getAuditSeq()).hash);
+        }
+        static String hex(byte[] b) { return HexFormat.of().formatHex(b); }
+
+        void force() throws IOException { ch.force(false); }
+        @Override
+        public synchronized void close() throws IOException {
+            ch.force(false);
+            ch.close();
+        }
+
+        private void readFully(ByteBuffer buf, long at) throws IOException {
+            while (buf.hasRemaining())
+                if (ch.read(buf, at + buf.position()) < 0) throw new EOFException("audit chain truncated");
+        }
+        private void loadCheckpoint() throws IOException {
+            if (!Files.exists(checkpointFile)) return;
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(checkpointFile))) {
+                long at = in.readLong();
+                byte[] h = new byte[HASH];
+                in.readFully(h);
+                if (at > 0 && at <= size) { verified = at; verifiedHead = h; }
+            } catch (EOFException e) {
+                verified = 0; // unreadable checkpoint just means the next verify starts from genesis
+            }
+        }
+        private void saveCheckpoint() throws IOException {
+            Path tmp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tmp))) {
+                out.writeLong(verified);
+                out.write(verifiedHead);
+            }
+            Files.move(tmp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        private static byte stateCode(String s) {
+            if (s == null) return 0;
+            switch (s) {
+                case "PENDING": return 1;
+                case "APPROVED": return 2;
+                case "REJECTED": return 3;
+                case "CANCELLED": return 4;
+                default: return 0;
+            }
+        }
+        // putFixed(b, <ISO date>, 10) without building the String.
+        private void putDay(ByteBuffer b, int epochDay) {
+            if (!LeaveRequest.formatDay(epochDay, day, 0)) { putFixed(b, LocalDate.ofEpochDay(epochDay).toString(), 10); return; }
+            for (char c : day) b.put((byte) c);
+        }
+        private static void putFixed(ByteBuffer b, String s, int n) {
+            byte[] bytes = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+            int len = Math.min(n, bytes.length);
+            b.put(bytes, 0, len);
+            for (int i = len; i < n; i++) b.put((byte) 0);
+        }
+        private static String getFixed(ByteBuffer b, int n) {
+            byte[] bytes = new byte[n];
+            b.get(bytes);
+            int len = 0;
+            while (len < n && bytes[len] != 0) len++;
+            return new String(bytes, 0, len, StandardCharsets.UTF_8);
+        }
+    }
+
+    // Append-only Merkle tree with the RFC 6962 shape over audit blocks:
+    //   leaf = SHA-256(0x00 || block), node = SHA-256(0x01 || left || right).
+    // levels[h] keeps the root of every complete 2^h-leaf subtree, so appending is amortised O(1)
+    // hashes and any inclusion proof or historical root needs only O(log n) node lookups.
+    static class MerkleTree {
+        private static final int H = AuditChain.HASH;
+        private final List<byte[]> levels = new ArrayList<>();
+        private final List<Integer> counts = new ArrayList<>();
+        private final MessageDigest sha = sha256();
+
+        synchronized int size() { return counts.isEmpty() ? 0 : counts.get(0); }
+
+        synchronized void append(byte[] block, int off, int len) {
+            byte[] node = leafHash(sha, block, off, len);
+            for (int h = 0; ; h++) {
+                int n = push(h, node);
+                if ((n & 1) == 1) return;
+                node = nodeHash(sha, node(h, n - 2), node);
+            }
+        }
+        private int push(int h, byte[] hash) {
+            if (h == levels.size()) { levels.add(new byte[16 * H]); counts.add(0); }
+            byte[] level = levels.get(h);
+            int n = counts.get(h);
+            if ((n + 1) * H > level.length) levels.set(h, level = Arrays.copyOf(level, level.length * 2));
+            System.arraycopy(hash, 0, level, n * H, H);
+            counts.set(h, n + 1);
+            return n + 1;
+        }
+        private byte[] node(int h, int i) { return Arrays.copyOfRange(levels.get(h), i * H, (i + 1) * H); }
+
+        // Root of the first treeSize leaves, so proofs cut at an older size stay checkable.
+        synchronized byte[] root(int treeSize) {
+            return treeSize == 0 ? sha.digest() : hash(0, treeSize);
+        }
+        // Sibling hashes from the leaf upwards (RFC 6962 PATH).
+        synchronized List<byte[]> proof(int leaf, int treeSize) {
+            List<byte[]> path = new ArrayList<>();
+            path(leaf, 0, treeSize, path);
+            return path;
+        }
+        private void path(int m, int from, int to, List<byte[]> out) {
+            if (to - from == 1) return;
+            int k = Integer.highestOneBit(to - from - 1);
+            if (m - from < k) { path(m, from, from + k, out); out.add(hash(from + k, to)); }
+            else { path(m, from + k, to, out); out.add(hash(from, from + k)); }
+        }
+        private byte[] hash(int from, int to) {
+            int n = to - from;
+            if (Integer.bitCount(n) == 1) { // complete subtree: stored
+                int h = Integer.numberOfTrailingZeros(n);
+                return node(h, from >> h);
+            }
+            int k = Integer.highestOneBit(n - 1);
+            return nodeHash(sha, hash(from, from + k), hash(from + k, to));
+        }
+
+        static boolean verify(byte[] block, long leaf, long treeSize, List<byte[]> path, byte[] root) {
+            if (leaf < 0 || leaf >= treeSize) return false;
+            MessageDigest sha = sha256();
+            byte[] r = leafHash(sha, block, 0, block.length);
+            long fn = leaf, sn = treeSize - 1;
+            for (byte[] p : path) { // RFC 9162 section 2.1.3.2
+                if (sn == 0) return false;
+                if ((fn & 1) == 1 || fn == sn) {
+                    r = nodeHash(sha, p, r);
+                    while ((fn & 1) == 0 && fn != 0) { fn >>= 1; sn >>= 1; }
+                } else {
+                    r = nodeHash(sha, r, p);
+                }
+                fn >>= 1;
+                sn >>= 1;
+            }
+            return sn == 0 && Arrays.equals(r, root);
+        }
+        private static byte[] leafHash(MessageDigest sha, byte[] b, int off, int len) {
+            sha.update((byte) 0);
+            sha.update(b, off, len);
+            return sha.digest();
+        }
+        private static byte[] nodeHash(MessageDigest sha, byte[] left, byte[] right) {
+            sha.update((byte) 1);
+            sha.update(left);
+            sha.update(right);
+            return sha.digest();
+        }
+        static MessageDigest sha256() {
+            try { return MessageDigest.getInstance("SHA-256"); }
+            catch (NoSuchAlgorithmException e) { throw new IllegalStateException(e); }
+        }
+    }
+
+    // Inclusion proof for one request's audit blocks, as written by AuditChain.writeProof:
+    //   ReqID / TreeSize / Root header, then per block its raw bytes and Merkle path (hex).
+    static class AuditProof {
+        int reqId = -1;
+        long treeSize = -1;
+        byte[] root;
+        final List<Long> seqs = new ArrayList<>();
+        final List<byte[]> blocks = new ArrayList<>();
+        final List<List<byte[]>> paths = new ArrayList<>();
+
+        static AuditProof parse(BufferedReader in) throws IOException {
+            AuditProof p = new AuditProof();
+            HexFormat hex = HexFormat.of();
+            try {
+                for (String line; (line = in.readLine()) != null; ) {
+                    line = line.trim();
+                    if (line.isEmpty() || line.startsWith("#")) continue;
+                    int colon = line.indexOf(':');
+                    if (colon < 0) throw new IOException("bad proof line: " + line);
+                    String key = line.substring(0, colon).trim(), val = line.substring(colon + 1).trim();
+                    switch (key) {
+                        case "ReqID": p.reqId = Integer.parseInt(val); break;
+                        case "TreeSize": p.treeSize = Long.parseLong(val); break;
+                        case "Root": p.root = hex.parseHex(val); break;
+                        case "Block": p.seqs.add(Long.parseLong(val)); break;
+                        case "Data": p.blocks.add(hex.parseHex(val)); break;
+                        case "Path": {
+                            List<byte[]> path = new ArrayList<>();
+                            for (String h : val.split(",")) if (!h.isBlank()) path.add(hex.parseHex(h.trim()));
+                            p.paths.add(path);
+                            break;
+                        }
+                        default: break; // informational lines
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IOException("malformed proof: " + e.getMessage());
+            }
+            if (p.reqId < 0 || p.treeSize < 0 || p.root == null || p.seqs.isEmpty()
+                    || p.blocks.size() != p.seqs.size() || p.paths.size() != p.seqs.size())
+                throw new IOException("incomplete proof file");
+            return p;
+        }
+
+        // Checks each block against its own hash, the ReqID and the Merkle root; null when all hold.
+        String verify() {
+            MessageDigest sha = MerkleTree.sha256();
+            for (int i = 0; i < seqs.size(); i++) {
+                byte[] b = blocks.get(i);
+                long seq = seqs.get(i);
+                if (b.length != AuditChain.BLOCK) return "block #" + seq + " has the wrong length";
+                AuditChain.Block blk = new AuditChain.Block(ByteBuffer.wrap(b));
+                if (blk.seq != seq || blk.reqId != reqId) return "block #" + seq + " does not belong to ReqID " + reqId;
+                sha.update(b, 0, AuditChain.BODY + AuditChain.HASH);
+                if (!Arrays.equals(sha.digest(), blk.hash)) return "block #" + seq + " hash does not match its contents";
+                if (!MerkleTree.verify(b, seq, treeSize, paths.get(i), root)) return "block #" + seq + " is not included under the root";
+            }
+            return null;
+        }
+    }
+
+    // ---------- Extra Features ----------
+    static class BlockchainSimulator {
+        public static void printLeaveChain(AuditChain chain) throws IOException {
+            System.out.println(Colors.color("🛡 Blockchain Leave Chain:", Colors.PURPLE));
+            for (long i = 0, n = chain.size(); i < n; i++) {
+                AuditChain.Block b = chain.read(i);
+                System.out.println("Block #" + b.seq + ": ReqID " + b.reqId + " | " + b.event() + " | Hash: "
+                        + AuditChain.hex(b.hash).substring(0, 16) + "… | Prev: " + AuditChain.hex(b.prev).substring(0, 16) + "…");
+            }
+        }
+        public static boolean verifyIntegrity(AuditChain chain, boolean full) throws IOException {
+            AuditChain.Report rep = chain.verify(full, ForkJoinPool.commonPool());
+            if (!rep.ok()) {
+                AuditChain.Block bad = chain.read(rep.firstBad);
+                printlnError("Tampering detected at block #" + rep.firstBad + " (ReqID " + bad.reqId + "): " + rep.reason);
+            } else if (rep.from == rep.to) {
+                printlnSuccess("No new blocks since the last verification (" + rep.to + " blocks verified).");
+            } else {
+                printlnSuccess("Verified blocks #" + rep.from + "-#" + (rep.to - 1) + " (" + (rep.to - rep.from) + " blocks) in " + rep.millis + " ms, "
+                        + rep.blocksPerSec() + " blocks/s on " + rep.threads + (rep.threads == 1 ? " thread." : " threads."));
+            }
+            return rep.ok();
+        }
+        public static void auditTrail(AuditChain chain) throws IOException {
+            System.out.println("Audit Trail (Hashes):");
+            for (long i = 0, n = chain.size(); i < n; i++) {
+                AuditChain.Block b = chain.read(i);
+                System.out.println("#" + b.seq + " ReqID:" + b.reqId + " | EmpID:" + b.empId + " | " + b.type + " " + b.start + " to " + b.end
+                        + " | " + b.event() + " " + b.transition() + " | Hash:" + AuditChain.hex(b.hash));
+            }
+        }
+    }
+
+    static class LeavePatternPredictor {
+        private static final String[] SEASON_NAMES = {"winter", "spring", "summer", "autumn"};
+
+        // One employee's forecast; fixed-size so the forecast file can hold it in a hash slot.
+        static final class Forecast {
+            int empId, total;
+            final int[] byType = new int[LeaveProfiles.TYPES];
+            int nextType = -1, confidence, weekday, month, targetMonth, targetShare;
+            LocalDate asOf; // date of the nightly run it came from; null = computed just now
+
+            String describe() {
+                StringBuilder sb = new StringBuilder();
+                sb.append("🔮 Past leaves: ").append(total).append(" | Sick: ").append(byType[LeaveRequest.SICK])
+                  .append(" | WFH: ").append(byType[LeaveRequest.WFH]).append(" | Vacation: ").append(byType[LeaveRequest.VACATION]);
+                if (total == 0) return sb.append("\nPredicted: not enough history yet").toString();
+                String target = Month.of(targetMonth).getDisplayName(TextStyle.FULL, Locale.ENGLISH);
+                sb.append("\nPredicted: Next leave could be ").append(LeaveRequest.TYPE_NAMES[nextType])
+                  .append(" (").append(confidence).append("% in ").append(SEASON_NAMES[LeaveProfiles.season(targetMonth)]).append(')')
+                  .append("\nUsually starts on ").append(DayOfWeek.of(weekday).getDisplayName(TextStyle.FULL, Locale.ENGLISH))
+                  .append(" | Busiest month: ").append(Month.of(month).getDisplayName(TextStyle.FULL, Locale.ENGLISH))
+                  .append(" | ").append(target).append(": ").append(targetShare).append("% of past leave");
+                if (asOf != null) sb.append("\n(nightly forecast of ").append(asOf).append(')');
+                return sb.toString();
+            }
+        }
+
+        // Looks two weeks ahead of asOf: the type with the highest P(type) * P(season | type),
+        // both Laplace-smoothed so a short history is not overconfident, plus the weekday and
+        // month most leave starts on. profile from LeaveProfiles.of (null = no history).
+        static Forecast forecast(int empId, int[] profile, LocalDate asOf) {
+            Forecast f = new Forecast();
+            f.empId = empId;
+            f.total = LeaveProfiles.total(profile);
+            f.targetMonth = asOf.plusWeeks(2).getMonthValue();
+            for (int t = 0; t < LeaveProfiles.TYPES; t++) f.byType[t] = LeaveProfiles.byType(profile, t);
+            if (f.total == 0) return f;
+            int season = LeaveProfiles.season(f.targetMonth);
+            double best = -1, sum = 0;
+            for (int t = 0; t < LeaveProfiles.TYPES; t++) {
+                double prior = (f.byType[t] + 1.0) / (f.total + LeaveProfiles.TYPES);
+                double inSeason = (LeaveProfiles.byTypeAndSeason(profile, t, season) + 1.0) / (f.byType[t] + LeaveProfiles.SEASONS);
+                double score = prior * inSeason;
+                sum += score;
+                if (score > best) { best = score; f.nextType = t; }
+            }
+            f.confidence = (int) Math.round(100 * best / sum);
+            for (int d = 0, top = -1; d < 7; d++)
+                if (LeaveProfiles.byWeekday(profile, d) > top) { top = LeaveProfiles.byWeekday(profile, d); f.weekday = d + 1; }
+            for (int m = 1, top = -1; m <= 12; m++)
+                if (LeaveProfiles.byMonth(profile, m) > top) { top = LeaveProfiles.byMonth(profile, m); f.month = m; }
+            f.targetShare = LeaveProfiles.byMonth(profile, f.targetMonth) * 100 / f.total;
+            return f;
+        }
+
+        // Forecasts employees[lo, hi) into out; splits until slices are small enough to run serially.
+        static final class ForecastTask extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+            private static final int SLICE = 2048;
+            private final User[] employees;
+            private final int[][] profiles;
+            private final Forecast[] out;
+            private final LocalDate asOf;
+            private final int lo, hi;
+            ForecastTask(User[] employees, int[][] profiles, Forecast[] out, LocalDate asOf, int lo, int hi) {
+                this.employees = employees; this.profiles = profiles; this.out = out; this.asOf = asOf; this.lo = lo; this.hi = hi;
+            }
+            @Override
+            protected void compute() {
+                if (hi - lo <= SLICE) {
+                    for (int i = lo; i < hi; i++) out[i] = forecast(employees[i].getEmpId(), profiles[i], asOf);
+                    return;
+                }
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new ForecastTask(employees, profiles, out, asOf, lo, mid), new ForecastTask(employees, profiles, out, asOf, mid, hi));
+            }
+        }
+    }
+
+    // Nightly forecasts for every employee in one file, looked up by EmpID with one positioned read
+    // (open addressing, load <= 1/2, so usually the first slot). Layout: a 32-byte header
+    // [magic][asOf epoch day][slots][count] then `slots` 48-byte slots; a slot starts with
+    // [used][empId] and an unused one is all zeros. Rewritten whole (temp file + rename) each run.
+    static class ForecastFile {
+        static final int MAGIC = 0x4C464331; // "LFC1"
+        static final int HEADER = 32, SLOT = 48;
+
+        static void write(Path file, LeavePatternPredictor.Forecast[] forecasts, LocalDate asOf) throws IOException {
+            int slots = 16;
+            while (slots < 2L * forecasts.length) slots <<= 1;
+            ByteBuffer buf = ByteBuffer.allocate(HEADER + slots * SLOT);
+            buf.putInt(MAGIC).putInt((int) asOf.toEpochDay()).putInt(slots).putInt(forecasts.length);
+            for (LeavePatternPredictor.Forecast f : forecasts) {
+                int i = slot(f.empId, slots);
+                while (buf.get(HEADER + i * SLOT) != 0) i = (i + 1) & (slots - 1);
+                buf.position(HEADER + i * SLOT);
+                buf.put((byte) 1).putInt(f.empId).putInt(f.total);
+                for (int c : f.byType) buf.putInt(c);
+                buf.put((byte) f.nextType).put((byte) f.confidence).put((byte) f.weekday).put((byte) f.month)
+                   .put((byte) f.targetMonth).put((byte) f.targetShare);
+            }
+            buf.clear();
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buf.hasRemaining()) ch.write(buf);
+                ch.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        // The stored forecast, or null if there is no file or the employee is not in it.
+        static LeavePatternPredictor.Forecast lookup(Path file, int empId) throws IOException {
+            if (!Files.exists(file)) return null;
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer head = ByteBuffer.allocate(HEADER);
+                readFully(ch, head, 0);
+                int asOf = head.getInt(4), slots = head.getInt(8);
+                if (head.getInt(0) != MAGIC || Integer.bitCount(slots) != 1 || ch.size() != HEADER + (long) slots * SLOT)
+                    throw new IOException(file + " is not a forecast file");
+                ByteBuffer s = ByteBuffer.allocate(SLOT);
+                for (int i = slot(empId, slots), probes = 0; probes < slots; i = (i + 1) & (slots - 1), probes++) {
+                    s.clear();
+                    readFully(ch, s, HEADER + (long) i * SLOT);
+                    s.flip();
+                    if (s.get() == 0) return null;
+                    if (s.getInt() != empId) continue;
+                    LeavePatternPredictor.Forecast f = new LeavePatternPredictor.Forecast();
+                    f.empId = empId;
+                    f.total = s.getInt();
+                    for (int t = 0; t < f.byType.length; t++) f.byType[t] = s.getInt();
+                    f.nextType = s.get();
+                    f.confidence = s.get();
+                    f.weekday = s.get();
+                    f.month = s.get();
+                    f.targetMonth = s.get();
+                    f.targetShare = s.get();
+                    f.asOf = LocalDate.ofEpochDay(asOf);
+                    return f;
+                }
+                return null;
+            }
+        }
+        // Top bits of a multiplicative hash: EmpIDs are often sequential.
+        private static int slot(int empId, int slots) { return (empId * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(slots)); }
+        private static void readFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+            while (buf.hasRemaining()) {
+                int n = ch.read(buf, pos + buf.position());
+                if (n < 0) throw new EOFException("forecast file is truncated");
+            }
+        }
+    }
+
+    static class AIStressDetector {
+        static final int LOOKBACK = 365;   // days of history the signals look at
+        static final int SICK_WINDOW = 60; // sick requests starting this close together form a cluster
+
+        // One user's burnout signals and the 0-100 score built from them.
+        static final class Risk {
+            final User user;
+            int score, daysSinceLeave, sickCluster, rejected, taken;
+            Risk(User user) { this.user = user; }
+            String level() { return score >= 60 ? "High" : score >= 30 ? "Moderate" : "Low"; }
+        }
+        // Lowest risk first, ties broken so the larger EmpID goes first: the head of a bounded
+        // min-heap is always the one to evict.
+        static final Comparator<Risk> LEAST_AT_RISK = Comparator.<Risk>comparingInt(r -> r.score)
+                .thenComparing(r -> r.user.getEmpId(), Comparator.reverseOrder());
+
+        // history: the user's own requests. Signals, each capped so no single one dominates:
+        // days since the last approved leave ended (35 at 180+ days), the most non-rejected sick
+        // requests starting within SICK_WINDOW days (25 at 4+), rejected requests (20 at 3+),
+        // both over the last LOOKBACK days, and leave taken this year (20 at 25+ days, the old signal).
+        static Risk assess(User u, Collection<LeaveRequest> history, int today) {
+            Risk r = new Risk(u);
+            r.taken = u.getTotalLeavesAllowed() - u.getLeaveBalance();
+            int since = today - LOOKBACK, lastLeaveEnd = Integer.MIN_VALUE, sickCount = 0;
+            int[] sick = new int[history.size()];
+            for (LeaveRequest q : history) {
+                byte st = q.statusCode();
+                if (st == LeaveRequest.APPROVED && q.startDay() <= today) lastLeaveEnd = Math.max(lastLeaveEnd, Math.min(q.endDay(), today));
+                if (q.startDay() < since || q.startDay() > today) continue;
+                if (st == LeaveRequest.REJECTED) r.rejected++;
+                else if (q.typeCode() == LeaveRequest.SICK) sick[sickCount++] = q.startDay();
+            }
+            r.daysSinceLeave = lastLeaveEnd == Integer.MIN_VALUE ? LOOKBACK : Math.min(LOOKBACK, today - lastLeaveEnd);
+            Arrays.sort(sick, 0, sickCount);
+            for (int lo = 0, hi = 0; hi < sickCount; hi++) {
+                while (sick[hi] - sick[lo] >= SICK_WINDOW) lo++;
+                r.sickCluster = Math.max(r.sickCluster, hi - lo + 1);
+            }
+            double score = 35 * Math.min(1.0, r.daysSinceLeave / 180.0)
+                    + 25 * Math.min(1.0, Math.max(0, r.sickCluster - 1) / 3.0)
+                    + 20 * Math.min(1.0, r.rejected / 3.0)
+                    + 20 * Math.min(1.0, Math.max(0, r.taken - 10) / 15.0);
+            r.score = (int) Math.round(score);
+            return r;
+        }
+
+        public static void analyze(Risk r) {
+            String suggestion = r.score >= 60 ? (r.taken > 20 ? "⚠️ High Leaves: You might be stressed. Take wellness leave or consult HR."
+                                                              : "⚠️ You might be stressed. Plan some time off or consult HR.")
+                    : r.score >= 30 ? "🟡 Moderate risk. Prioritize self-care."
+                    : "✅ Good leave pattern. Keep balancing work and rest.";
+            System.out.println("AI Stress Analysis:");
+            System.out.println("Leaves taken: " + r.taken);
+            System.out.println("Risk score: " + r.score + "/100 (" + r.level() + ") | Days since last leave: " + r.daysSinceLeave
+                    + " | Sick requests within " + SICK_WINDOW + " days: " + r.sickCluster + " | Rejected this year: " + r.rejected);
+            System.out.println("Suggestion: " + suggestion);
+        }
+
+        // Scores users[lo, hi) and keeps the k most at risk per team (User.getTeam; null = users in
+        // no team) in bounded min-heaps, so nobody is sorted beyond k. Halves merge their heaps.
+        static final class ScanTask extends RecursiveTask<Map<String, PriorityQueue<Risk>>> {
+            private static final long serialVersionUID = 1L;
+            private static final int SLICE = 2048;
+            private final User[] users;
+            private final IntFunction<Collection<LeaveRequest>> history;
+            private final int k, today, lo, hi;
+            ScanTask(User[] users, IntFunction<Collection<LeaveRequest>> history, int k, int today, int lo, int hi) {
+                if (k <= 0) throw new IllegalArgumentException("top must be at least 1");
+                this.users = users; this.history = history; this.k = k; this.today = today; this.lo = lo; this.hi = hi;
+            }
+            @Override
+            protected Map<String, PriorityQueue<Risk>> compute() {
+                if (hi - lo <= SLICE) {
+                    Map<String, PriorityQueue<Risk>> top = new HashMap<>();
+                    for (int i = lo; i < hi; i++) offer(top, assess(users[i], history.apply(users[i].getEmpId()), today), k);
+                    return top;
+                }
+                int mid = (lo + hi) >>> 1;
+                ScanTask right = new ScanTask(users, history, k, today, mid, hi);
+                right.fork();
+                Map<String, PriorityQueue<Risk>> top = new ScanTask(users, history, k, today, lo, mid).compute();
+                for (PriorityQueue<Risk> heap : right.join().values())
+                    for (Risk r : heap) offer(top, r, k);
+                return top;
+            }
+        }
+        static void offer(Map<String, PriorityQueue<Risk>> top, Risk r, int k) {
+            PriorityQueue<Risk> heap = top.computeIfAbsent(r.user.getTeam(), c -> new PriorityQueue<>(k + 1, LEAST_AT_RISK));
+            if (heap.size() < k) heap.add(r);
+            else if (LEAST_AT_RISK.compare(r, heap.peek()) > 0) { heap.poll(); heap.add(r); }
+        }
+    }
+
+    static class QRGenerator {
+        public static void printQR(String data) {
+            System.out.println("ASCII QR for [" + data + "]:");
+            for (int i = 0; i < 9; i++) {
+                for (int j = 0; j < 18; j++) {
+                    if (rnd.nextBoolean()) System.out.print("█");
+                    else System.out.print(" ");
+                }
+                System.out.println();
+            }
+            System.out.println("Scan simulation: Console QR not for phone cameras. Real QR would link profile or verification page.");
+        }
+    }
+
+    // ---------- Demo Data ----------
+    void loadDemoData() {
+        User emp = new Employee(101, "Shubhangi Tyagi", "shubhangi@email.com", "pass123", 26), mgr = new Manager(201, "Parul Rana", "parul@email.com", "manager1", 30);
+        emp.setTeam("Core");
+        mgr.setTeam("Core");
+        commitUser(emp);
+        commitUser(mgr);
+        commitUser(new Admin(301, "Dr. Swati Gupta", "admin@email.com", "admin2050", 50));
+        LeaveRequest req = new LeaveRequest(101, "2025-11-10", "2025-11-11", "WFH", "Remote work", 2);
+        commitApply(req);
+        commitApprove(req);
+    }
+
+    // ---------- Prompts ----------
+    String promptValidDate(String prompt) {
+        while (true) {
+            System.out.print(prompt + " [YYYY-MM-DD]: ");
+            String in = sc.nextLine().trim();
+            if (InputValidator.isValidDate(in)) return in;
+            printlnError("Invalid date! Please re-enter.");
+        }
+    }
+    String promptValidEmail(String prompt) {
+        while (true) {
+            System.out.print(prompt + ": ");
+            String in = sc.nextLine().trim();
+            if (InputValidator.isValidEmail(in)) return in;
+            printlnError("Invalid email! Please re-enter.");
+        }
+    }
+    int promptInt(String prompt) {
+        while (true) {
+            System.out.print(prompt + ": ");
+            String in = sc.nextLine().trim();
+            if (InputValidator.isInt(in)) return Integer.parseInt(in);
+            printlnError("Not a valid number! Try again.");
+        }
+    }
+
+    // ---------- File helpers ----------
+    private static String timestampForFile() {
+        return LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+    }
+    private static String sanitize(String s) {
+        if (s == null) return "";
+        return s.replace(',', ' '); // avoid CSV breaking
+    }
+
+    // Streams text into a file through a fixed-size char/byte buffer pair, so an export
+    // never holds more than one buffer of output no matter how many rows it writes.
+    static class ExportSink implements Appendable, Closeable {
+        static final int CHUNK = 32 * 1024;
+        static final long PROGRESS_EVERY = 100_000;
+
+        private final WritableByteChannel channel;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private final CharBuffer chars;
+        private final ByteBuffer bytes;
+        private final LongConsumer onProgress;
+        private long records, bytesWritten;
+        private boolean closed;
+
+        ExportSink(WritableByteChannel channel, LongConsumer onProgress) {
+            this.channel = channel;
+            this.onProgress = onProgress;
+            this.chars = CharBuffer.allocate(CHUNK);
+            this.bytes = ByteBuffer.allocateDirect(CHUNK * 4);
+        }
+        static ExportSink toFile(Path file, LongConsumer onProgress) throws IOException {
+            FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            return new ExportSink(ch, onProgress);
+        }
+
+        @Override
+        public ExportSink append(CharSequence csq) throws IOException {
+            if (csq == null) csq = "null";
+            return append(csq, 0, csq.length());
+        }
+        @Override
+        public ExportSink append(CharSequence csq, int start, int end) throws IOException {
+            while (start < end) {
+                if (!chars.hasRemaining()) drain(false);
+                int n = Math.min(end - start, chars.remaining());
+                chars.append(csq, start, start + n);
+                start += n;
+            }
+            return this;
+        }
+        @Override
+        public ExportSink append(char c) throws IOException {
+            if (!chars.hasRemaining()) drain(false);
+            chars.put(c);
+            return this;
+        }
+        public ExportSink append(long v) throws IOException { return append(Long.toString(v)); }
+        // An epoch day as yyyy-MM-dd, formatted straight into the buffer.
+        public ExportSink appendDay(int epochDay) throws IOException {
+            if (chars.remaining() < LeaveRequest.DAY_CHARS) drain(false);
+            if (!LeaveRequest.formatDay(epochDay, chars.array(), chars.arrayOffset() + chars.position()))
+                return append(LocalDate.ofEpochDay(epochDay).toString());
+            chars.position(chars.position() + LeaveRequest.DAY_CHARS);
+            return this;
+        }
+
+        // Marks the end of one exported record (a CSV row or a TXT block).
+        public void endRecord() {
+            records++;
+            if (onProgress != null && records % PROGRESS_EVERY == 0) onProgress.accept(records);
+        }
+
+        private void drain(boolean endOfInput) throws IOException {
+            chars.flip();
+            while (true) {
+                CoderResult cr = encoder.encode(chars, bytes, endOfInput);
+                if (cr.isError()) cr.throwException();
+                if (endOfInput && cr.isUnderflow()) {
+                    while (encoder.flush(bytes).isOverflow()) writeBytes();
+                }
+                writeBytes();
+                if (cr.isUnderflow()) break;
+            }
+            chars.compact();
+        }
+        private void writeBytes() throws IOException {
+            bytes.flip();
+            while (bytes.hasRemaining()) bytesWritten += channel.write(bytes);
+            bytes.clear();
+        }
+
+        public long records() { return records; }
+        public long bytesWritten() { return bytesWritten; }
+
+        // Flushes the tail and closes the channel; records()/bytesWritten() are final afterwards.
+        public void finish() throws IOException {
+            if (closed) return;
+            closed = true;
+            try { drain(true); }
+            finally { channel.close(); }
+        }
+        @Override
+        public void close() throws IOException { finish(); }
+    }
+
+    interface ExportJob { void write(ExportSink out) throws IOException; }
+
+    // op: the export's metric, or null for files that are not exports (e.g. import error lists).
+    private static boolean exportToFile(String fileName, Metrics.Op op, ExportJob job) {
+        long t0 = System.nanoTime();
+        try (ExportSink out = ExportSink.toFile(Paths.get(fileName),
+                rows -> printlnInfo("  " + rows + " records written…"))) {
+            job.write(out);
+            out.finish();
+            if (op != null) Metrics.record(op, t0);
+            printlnSuccess("Saved: " + fileName + " (" + out.records() + " records, " + out.bytesWritten() + " bytes)");
+            return true;
+        } catch (IOException e) {
+            if (op != null) Metrics.record(op, t0, false);
+            printlnError("Failed to save file: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // ---------- Export Writers ----------
+    void writeLeaveCSV(ExportSink out, Collection<LeaveRequest> list) throws IOException {
+        out.append("ReqID,EmpID,Start,End,Days,Type,Status,Comments\n");
+        for (LeaveRequest r : list) {
+            out.append(r.getReqId()).append(',')
+               .append(r.getEmpId()).append(',')
+               .appendDay(r.startDay()).append(',')
+               .appendDay(r.endDay()).append(',')
+               .append(r.getRequestedDays()).append(',')
+               .append(sanitize(r.getType())).append(',')
+               .append(sanitize(r.getStatus())).append(',')
+               .append(sanitize(r.getComments())).append('\n');
+            out.endRecord();
+        }
+    }
+    void writeLeaveTXT(ExportSink out, Collection<LeaveRequest> list) throws IOException {
+        out.append("===== Leave Requests Report =====\n\n");
+        for (LeaveRequest r : list) {
+            out.append("Request ID: ").append(r.getReqId()).append('\n');
+            User u = getUserById(r.getEmpId());
+            String name = (u==null) ? "Unknown" : u.getName();
+            out.append("Employee  : ").append(name).append(" (").append(r.getEmpId()).append(")\n");
+            out.append("Type      : ").append(r.getType()).append('\n');
+            out.append("From      : ").appendDay(r.startDay()).append('\n');
+            out.append("To        : ").appendDay(r.endDay()).append('\n');
+            out.append("Days      : ").append(r.getRequestedDays()).append('\n');
+            out.append("Reason    : ").append(r.getComments()).append('\n');
+            out.append("Status    : ").append(r.getStatus()).append('\n');
+            out.append("----------------------------------------\n");
+            out.endRecord();
+        }
+    }
+
+    private void writeTeamStatsCSV(ExportSink out) throws IOException {
+        out.append("EmpID,Name,LeavesUsed,LeaveBalance\n");
+        for (User u : users.ofRole(Employee.class)) {
+            out.append(u.getEmpId()).append(',')
+               .append(sanitize(u.getName())).append(',')
+               .append(u.getTotalLeavesAllowed() - u.getLeaveBalance()).append(',')
+               .append(u.getLeaveBalance()).append('\n');
+            out.endRecord();
+        }
+    }
+    private void writeTeamStatsTXT(ExportSink out) throws IOException {
+        out.append("===== Team Leave Summary =====\n\n");
+        for (User u : users.ofRole(Employee.class)) {
+            out.append("EmpID : ").append(u.getEmpId()).append('\n');
+            out.append("Name  : ").append(u.getName()).append('\n');
+            out.append("Leaves Used : ").append(u.getTotalLeavesAllowed() - u.getLeaveBalance()).append('\n');
+            out.append("Leave Balance: ").append(u.getLeaveBalance()).append('\n');
+            out.append("--------------------------------\n");
+            out.endRecord();
+        }
+    }
+
+    private void writeEmployeeCSV(ExportSink out, Employee emp) throws IOException {
+        out.append(BulkImporter.USER_HEADER).append('\n');
+        out.append(emp.getEmpId()).append(',')
+           .append(sanitize(emp.getName())).append(',')
+           .append(sanitize(emp.getEmail())).append(',')
+           .append(emp.getTotalLeavesAllowed()).append(',')
+           .append(emp.getLeaveBalance()).append(',')
+           .append(emp.getBadges()).append(',')
+           .append(sanitize(emp.getLastLogin())).append(',')
+           .append(emp.getTeam() == null ? "" : emp.getTeam()).append('\n');
+        out.endRecord();
+    }
+    private void writeEmployeeTXT(ExportSink out, Employee emp) throws IOException {
+        out.append("===== Employee Profile =====\n");
+        out.append("EmpID: ").append(emp.getEmpId()).append('\n');
+        out.append("Name: ").append(emp.getName()).append('\n');
+        out.append("Email: ").append(emp.getEmail()).append('\n');
+        out.append("Total Allowed: ").append(emp.getTotalLeavesAllowed()).append('\n');
+        out.append("Leave Balance: ").append(emp.getLeaveBalance()).append('\n');
+        out.append("Badges: ").append(emp.getBadges()).append('\n');
+        out.append("Last Login: ").append(emp.getLastLogin()).append('\n');
+        out.append("-----------------------------\n");
+        out.endRecord();
+        // append their specific requests
+        out.append("\nRequests:\n");
+        for (LeaveRequest r : requestIndex.forEmployee(emp.getEmpId())) {
+            out.append("Req#").append(r.getReqId()).append(" | ").append(r.getType()).append(" | ")
+               .appendDay(r.startDay()).append(" -> ").appendDay(r.endDay()).append(" | Days: ").append(r.getRequestedDays())
+               .append(" | Status: ").append(r.getStatus()).append('\n');
+            out.endRecord();
+        }
+    }
+
+    private void writeFeedbackCSV(ExportSink out) throws IOException {
+        out.append("From,Message\n");
+        for (HRFeedback fb : feedbacks) {
+            out.append(sanitize(fb.getEmpName())).append(',')
+               .append(sanitize(fb.getMessage())).append('\n');
+            out.endRecord();
+        }
+    }
+    private void writeFeedbackTXT(ExportSink out) throws IOException {
+        out.append("===== HR Feedback =====\n\n");
+        for (HRFeedback fb : feedbacks) {
+            out.append("From: ").append(fb.getEmpName()).append('\n');
+            out.append("Message: ").append(fb.getMessage()).append('\n');
+            out.append("--------------------------------\n");
+            out.endRecord();
+        }
+    }
+
+    private void writeBlockchainCSV(ExportSink out) throws IOException {
+        if (chain == null) throw new IOException("audit chain is not open");
+        out.append("ReqID,EmpID,Status,Hash\n");
+        for (LeaveRequest r : requests.values()) {
+            out.append(r.getReqId()).append(',')
+               .append(r.getEmpId()).append(',')
+               .append(sanitize(r.getStatus())).append(',')
+               .append(chain.hashOf(r)).append('\n');
+            out.endRecord();
+        }
+    }
+    private void writeBlockchainTXT(ExportSink out) throws IOException {
+        if (chain == null) throw new IOException("audit chain is not open");
+        out.append("===== Blockchain Audit Trail =====\n\n");
+        for (LeaveRequest r : requests.values()) {
+            out.append("ReqID: ").append(r.getReqId()).append(" | EmpID: ").append(r.getEmpId()).append('\n');
+            out.append("Status: ").append(r.getStatus()).append('\n');
+            out.append("Block: #").append(r.getAuditSeq()).append(" | Hash: ").append(chain.hashOf(r)).append('\n');
+            out.append("--------------------------------\n");
+            out.endRecord();
+        }
+    }
+
+    // ---------- Metrics ----------
+    // Process-wide latency histograms and counters for the user-facing operations. Recording is
+    // two nanoTime() calls and a few striped/atomic increments, so it stays on in production.
+    // Read through JMX (com.hr.main:type=SmartLeaveMetrics, e.g. in jconsole) or a text file
+    // rewritten every few seconds: -Dsls.metrics.file=metrics.txt [-Dsls.metrics.period=60].
+    static class Metrics {
+        enum Op {
+            LOGIN("login"), APPLY("apply"), CANCEL("cancel"), APPROVE("approve"), REJECT("reject"), BULK_DECIDE("bulk-decide"),
+            EXPORT_REQUESTS_CSV("export.requests.csv"), EXPORT_REQUESTS_TXT("export.requests.txt"),
+            EXPORT_TEAM_STATS_CSV("export.team-stats.csv"), EXPORT_TEAM_STATS_TXT("export.team-stats.txt"),
+            EXPORT_EMPLOYEE_CSV("export.employee.csv"), EXPORT_EMPLOYEE_TXT("export.employee.txt"),
+            EXPORT_FEEDBACK_CSV("export.feedback.csv"), EXPORT_FEEDBACK_TXT("export.feedback.txt"),
+            EXPORT_AUDIT_CSV("export.audit.csv"), EXPORT_AUDIT_TXT("export.audit.txt"), EXPORT_PROOF("export.proof"),
+            VERIFY_CHAIN("verify.chain"), VERIFY_COUNTERS("verify.counters"),
+            PREDICT_PATTERN("predict.pattern"), PREDICT_ALL("predict.all"), PREDICT_STRESS("predict.stress"), STRESS_SCAN("predict.stress-scan");
+
+            final String label;
+            Op(String label) { this.label = label; }
+        }
+
+        private static final Histogram[] HISTOGRAMS = new Histogram[Op.values().length];
+        static {
+            for (int i = 0; i < HISTOGRAMS.length; i++) HISTOGRAMS[i] = new Histogram();
+        }
+        static final long STARTED = System.nanoTime();
+        static final String OBJECT_NAME = "com.hr.main:type=SmartLeaveMetrics";
+
+        static Histogram of(Op op) { return HISTOGRAMS[op.ordinal()]; }
+        // t0 from System.nanoTime() at the start of the operation; ok = false counts a refusal/failure.
+        static void record(Op op, long t0, boolean ok) {
+            Histogram h = HISTOGRAMS[op.ordinal()];
+            h.record(System.nanoTime() - t0);
+            if (!ok) h.failures.increment();
+        }
+        static void record(Op op, long t0) { record(op, t0, true); }
+        static void reset() { for (Histogram h : HISTOGRAMS) h.reset(); }
+
+        // HDR-style log-linear buckets over nanoseconds: exact below 64 ns, then 32 buckets per
+        // power of two (about 3% relative error) up to 2^42 ns (73 min); longer values share the
+        // last bucket, max is exact.
+        static final class Histogram {
+            private static final int SUB_BITS = 5, SUB = 1 << SUB_BITS, LINEAR = 2 * SUB, MAX_EXP = 42;
+            static final int BUCKETS = LINEAR + (MAX_EXP - SUB_BITS - 1) * SUB + 1;
+
+            private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+            private final LongAdder count = new LongAdder(), sum = new LongAdder();
+            final LongAdder failures = new LongAdder();
+            private final AtomicLong max = new AtomicLong();
+
+            static int index(long v) {
+                if (v < LINEAR) return (int) Math.max(v, 0);
+                int exp = 63 - Long.numberOfLeadingZeros(v);
+                if (exp >= MAX_EXP) return BUCKETS - 1;
+                int shift = exp - SUB_BITS;
+                return LINEAR + (exp - SUB_BITS - 1) * SUB + (int) (v >>> shift) - SUB;
+            }
+            // Highest value that lands in bucket i.
+            static long upper(int i) {
+                if (i < LINEAR) return i;
+                if (i == BUCKETS - 1) return Long.MAX_VALUE;
+                int k = i - LINEAR, shift = k / SUB + 1;
+                return ((long) (k % SUB + SUB + 1) << shift) - 1;
+            }
+
+            void record(long nanos) {
+                buckets.incrementAndGet(index(nanos));
+                count.increment();
+                sum.add(nanos);
+                if (nanos > max.get()) max.accumulateAndGet(nanos, Math::max);
+            }
+            void reset() {
+                for (int i = 0; i < BUCKETS; i++) buckets.set(i, 0);
+                count.reset(); sum.reset(); failures.reset(); max.set(0);
+            }
+            long count() { return count.sum(); }
+            long failures() { return failures.sum(); }
+            long maxNanos() { return max.get(); }
+            double meanNanos() { long n = count(); return n == 0 ? 0 : (double) sum.sum() / n; }
+            // q in [0, 1]; 0 when nothing was recorded.
+            long percentile(double q) {
+                long[] snap = new long[BUCKETS];
+                long n = 0;
+                for (int i = 0; i < BUCKETS; i++) n += snap[i] = buckets.get(i);
+                if (n == 0) return 0;
+                long rank = Math.max(1, (long) Math.ceil(q * n)), seen = 0;
+                for (int i = 0; i < BUCKETS; i++)
+                    if ((seen += snap[i]) >= rank) return Math.min(upper(i), maxNanos());
+                return maxNanos();
+            }
+        }
+
+        // One line per operation that has run; counts per second over sinceNanos (the dump period).
+        static String report(long[] lastCounts, long sinceNanos) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("# Smart Leave metrics %s, uptime %d s, microseconds%n",
+                    LocalDateTime.now().withNano(0), (System.nanoTime() - STARTED) / 1_000_000_000L));
+            sb.append(String.format("%-22s %10s %8s %9s %10s %10s %10s %10s %10s %10s%n",
+                    "op", "count", "failed", "ops/s", "mean", "p50", "p90", "p99", "p99.9", "max"));
+            double secs = Math.max(1e-9, sinceNanos / 1e9);
+            for (Op op : Op.values()) {
+                Histogram h = of(op);
+                long n = h.count();
+                if (n == 0) continue;
+                long delta = n - (lastCounts == null ? 0 : lastCounts[op.ordinal()]);
+                if (lastCounts != null) lastCounts[op.ordinal()] = n;
+                sb.append(String.format("%-22s %10d %8d %9.1f %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n", op.label, n, h.failures(),
+                        delta / secs, h.meanNanos() / 1e3, h.percentile(0.5) / 1e3, h.percentile(0.9) / 1e3,
+                        h.percentile(0.99) / 1e3, h.percentile(0.999) / 1e3, h.maxNanos() / 1e3));
+            }
+            return sb.toString();
+        }
+
+        // Registers the MBean once and, if sls.metrics.file is set, starts rewriting that file every
+        // sls.metrics.period seconds (and once more at exit). Problems are reported, not fatal.
+        private static boolean started;
+        static synchronized void start() {
+            if (started) return;
+            started = true;
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new MBean(), new ObjectName(OBJECT_NAME));
+            } catch (JMException e) {
+                printlnError("Metrics MBean not registered: " + e.getMessage());
+            }
+            String file = System.getProperty("sls.metrics.file");
+            if (file == null || file.isBlank()) return;
+            long period = Long.getLong("sls.metrics.period", 60);
+            Path path = Paths.get(file);
+            long[] last = new long[Op.values().length];
+            long[] lastAt = {System.nanoTime()};
+            Runnable dump = () -> {
+                long now = System.nanoTime();
+                String text;
+                synchronized (last) {
+                    text = report(last, now - lastAt[0]);
+                    lastAt[0] = now;
+                }
+                try {
+                    Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+                    Files.writeString(tmp, text, StandardCharsets.UTF_8);
+                    Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    System.err.println("Metrics dump to " + path + " failed: " + e.getMessage());
+                }
+            };
+            ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "metrics-dump");
+                t.setDaemon(true);
+                return t;
+            });
+            timer.scheduleAtFixedRate(dump, period, period, TimeUnit.SECONDS);
+            Runtime.getRuntime().addShutdownHook(new Thread(dump));
+        }
+
+        // Flat attributes "<op>.<stat>" (count, failures, perSecond since start, meanMicros,
+        // p50Micros, p90Micros, p99Micros, p999Micros, maxMicros) and operations reset() and report().
+        static final class MBean implements DynamicMBean {
+            private static final String[] STATS = {"count", "failures", "perSecond", "meanMicros", "p50Micros", "p90Micros", "p99Micros", "p999Micros", "maxMicros"};
+
+            @Override
+            public Object getAttribute(String name) throws AttributeNotFoundException {
+                int dot = name.lastIndexOf('.');
+                if (dot > 0) {
+                    String label = name.substring(0, dot), stat = name.substring(dot + 1);
+                    for (Op op : Op.values()) if (op.label.equals(label)) return stat(of(op), stat, name);
+                }
+                throw new AttributeNotFoundException(name);
+            }
+            private static Object stat(Histogram h, String stat, String name) throws AttributeNotFoundException {
+                switch (stat) {
+                    case "count": return h.count();
+                    case "failures": return h.failures();
+                    case "perSecond": return h.count() / Math.max(1e-9, (System.nanoTime() - STARTED) / 1e9);
+                    case "meanMicros": return h.meanNanos() / 1e3;
+                    case "p50Micros": return h.percentile(0.5) / 1e3;
+                    case "p90Micros": return h.percentile(0.9) / 1e3;
+                    case "p99Micros": return h.percentile(0.99) / 1e3;
+                    case "p999Micros": return h.percentile(0.999) / 1e3;
+                    case "maxMicros": return h.maxNanos() / 1e3;
+                    default: throw new AttributeNotFoundException(name);
+                }
+            }
+            @Override
+            public AttributeList getAttributes(String[] names) {
+                AttributeList list = new AttributeList();
+                for (String n : names) {
+                    try { list.add(new Attribute(n, getAttribute(n))); }
+                    catch (AttributeNotFoundException e) { /* skipped, as the JMX contract allows */ }
+                }
+                return list;
+            }
+            @Override
+            public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+                throw new AttributeNotFoundException("metrics are read-only: " + attribute.getName());
+            }
+            @Override
+            public AttributeList setAttributes(AttributeList attributes) { return new AttributeList(); }
+            @Override
+            public Object invoke(String action, Object[] params, String[] signature) throws ReflectionException {
+                switch (action) {
+                    case "reset": reset(); return null;
+                    case "report": return report(null, System.nanoTime() - STARTED);
+                    default: throw new ReflectionException(new NoSuchMethodException(action));
+                }
+            }
+            @Override
+            public MBeanInfo getMBeanInfo() {
+                List<MBeanAttributeInfo> attrs = new ArrayList<>();
+                for (Op op : Op.values())
+                    for (String s : STATS) {
+                        String type = s.equals("count") || s.equals("failures") ? "long" : "double";
+                        attrs.add(new MBeanAttributeInfo(op.label + "." + s, type, op.label + " " + s, true, false, false));
+                    }
+                MBeanOperationInfo[] ops = {
+                        new MBeanOperationInfo("reset", "Clears all histograms and counters", new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION),
+                        new MBeanOperationInfo("report", "Text table of every operation that has run", new MBeanParameterInfo[0], "java.lang.String", MBeanOperationInfo.INFO),
+                };
+                return new MBeanInfo(MBean.class.getName(), "Smart Leave operation latency and throughput",
+                        attrs.toArray(new MBeanAttributeInfo[0]), null, ops, null);
+            }
+        }
+    }
+
+    // ---------- HTTP API ----------
+    // Minimal JSON: string escaping for responses and a flat {"key": "value" | number} reader
+    // for request bodies, which is all the API accepts.
+    static class Json {
+        static String str(String s) {
+            if (s == null) return "null";
+            StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '"': sb.append("\\\""); break;
+                    case '\\': sb.append("\\\\"); break;
+                    case '\n': sb.append("\\n"); break;
+                    case '\r': sb.append("\\r"); break;
+                    case '\t': sb.append("\\t"); break;
+                    default:
+                        if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                        else sb.append(c);
+                }
+            }
+            return sb.append('"').toString();
+        }
+        static String error(String message) { return "{\"error\":" + str(message) + "}"; }
+        static String request(LeaveRequest r) {
+            StringBuilder sb = new StringBuilder(160).append("{\"reqId\":").append(r.getReqId()).append(",\"empId\":").append(r.getEmpId());
+            LeaveRequest.appendDay(sb.append(",\"start\":\""), r.startDay());
+            LeaveRequest.appendDay(sb.append("\",\"end\":\""), r.endDay());
+            return sb.append("\",\"days\":").append(r.getRequestedDays()).append(",\"type\":").append(str(r.getType()))
+                     .append(",\"status\":").append(str(r.getStatus())).append(",\"comments\":").append(str(r.getComments())).append('}').toString();
+        }
+
+        static Map<String, String> parseObject(String s) {
+            Map<String, String> out = new HashMap<>();
+            int[] pos = {skip(s, 0)};
+            expect(s, pos, '{');
+            if (peek(s, pos) == '}') { pos[0]++; return out; }
+            while (true) {
+                String key = string(s, pos);
+                expect(s, pos, ':');
+                char c = peek(s, pos);
+                String value;
+                if (c == '"') value = string(s, pos);
+                else {
+                    int st = pos[0];
+                    while (pos[0] < s.length() && ",} \t\r\n".indexOf(s.charAt(pos[0])) < 0) pos[0]++;
+                    value = s.substring(st, pos[0]);
+                    if (value.isEmpty()) throw new IllegalArgumentException("missing value for " + key);
+                    if (value.equals("null")) value = null;
+                }
+                out.put(key, value);
+                c = peek(s, pos);
+                pos[0]++;
+                if (c == '}') break;
+                if (c != ',') throw new IllegalArgumentException("expected , or } at " + (pos[0] - 1));
+            }
+            if (skip(s, pos[0]) != s.length()) throw new IllegalArgumentException("trailing data");
+            return out;
+        }
+        private static int skip(String s, int i) {
+            while (i < s.length() && Character.isWhitespace(s.charAt(i))) i++;
+            return i;
+        }
+        private static char peek(String s, int[] pos) {
+            pos[0] = skip(s, pos[0]);
+            if (pos[0] >= s.length()) throw new IllegalArgumentException("unexpected end of JSON");
+            return s.charAt(pos[0]);
+        }
+        private static void expect(String s, int[] pos, char c) {
+            if (peek(s, pos) != c) throw new IllegalArgumentException("expected " + c + " at " + pos[0]);
+            pos[0]++;
+        }
+        private static String string(String s, int[] pos) {
+            expect(s, pos, '"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                if (pos[0] >= s.length()) throw new IllegalArgumentException("unterminated string");
+                char c = s.charAt(pos[0]++);
+                if (c == '"') return sb.toString();
+                if (c != '\\') { sb.append(c); continue; }
+                if (pos[0] >= s.length()) throw new IllegalArgumentException("unterminated string");
+                char e = s.charAt(pos[0]++);
+                switch (e) {
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'u':
+                        if (pos[0] + 4 > s.length()) throw new IllegalArgumentException("bad \\u escape");
+                        sb.append((char) Integer.parseInt(s.substring(pos[0], pos[0] + 4), 16));
+                        pos[0] += 4;
+                        break;
+                    default: sb.append(e);
+                }
+            }
+        }
+    }
+
+    // Headless JSON API over the same checked operations the console menus use. Each request runs
+    // on its own virtual thread when the JDK has them (21+), else on a bounded pool; handlers go
+    // through the locked leave operations and read() like any other caller.
+    // Auth is HTTP Basic with the account email and password. Binds to localhost only.
+    static class ApiServer {
+        static final int DEFAULT_PORT = 8080;
+        private static final int BACKLOG = 4096;
+        private static final int MAX_BODY = 64 * 1024;
+        private static final int MAX_PAGE = 1000;
+
+        private final SmartLeaveSystem sys;
+        private final HttpServer server;
+        private final ExecutorService executor;
+        private final boolean virtualThreads;
+
+        ApiServer(SmartLeaveSystem sys, int port) throws IOException {
+            this.sys = sys;
+            this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+            ExecutorService vt = virtualThreadExecutor();
+            this.virtualThreads = vt != null;
+            this.executor = vt != null ? vt : Executors.newFixedThreadPool(Math.max(16, Runtime.getRuntime().availableProcessors() * 8));
+            server.setExecutor(executor);
+            server.createContext("/api/", this::handle);
+        }
+        // Executors.newVirtualThreadPerTaskExecutor() if this JDK has it; looked up reflectively so
+        // the code still builds and runs on 17.
+        private static ExecutorService virtualThreadExecutor() {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                return null;
+            }
+        }
+
+        void start() { server.start(); }
+        int port() { return server.getAddress().getPort(); }
+        boolean usesVirtualThreads() { return virtualThreads; }
+        void stop() {
+            server.stop(1);
+            executor.shutdown();
+        }
+
+        // Thrown by handlers to answer with an error status; the message becomes {"error": ...}.
+        private static class ApiError extends RuntimeException {
+            private static final long serialVersionUID = 1L;
+            final int status;
+            ApiError(int status, String message) { super(message); this.status = status; }
+        }
+
+        private void handle(HttpExchange ex) throws IOException {
+            try {
+                User user = authenticate(ex);
+                String[] parts = ex.getRequestURI().getPath().substring("/api/".length()).split("/");
+                if (sys.read(user::mustChangePassword) && !parts[0].equals("password"))
+                    throw new ApiError(403, "password change required: POST /api/password {\"password\": ...}");
+                route(ex, user, ex.getRequestMethod(), parts);
+            } catch (ApiError e) {
+                if (e.status == 401) ex.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"SmartLeave\"");
+                send(ex, e.status, Json.error(e.getMessage()));
+            } catch (LeaveException e) {
+                send(ex, 409, Json.error(e.getMessage()));
+            } catch (IllegalArgumentException | java.time.DateTimeException e) {
+                send(ex, 400, Json.error(e.getMessage()));
+            } catch (RuntimeException e) {
+                // Details stay in the server log; clients only learn that it failed.
+                System.err.println("API " + ex.getRequestMethod() + " " + ex.getRequestURI().getPath() + " failed:");
+                e.printStackTrace();
+                send(ex, 500, Json.error("internal server error"));
+            } finally {
+                ex.close();
+            }
+        }
+
+        private User authenticate(HttpExchange ex) {
+            String h = ex.getRequestHeaders().getFirst("Authorization");
+            if (h == null || !h.regionMatches(true, 0, "Basic ", 0, 6)) throw new ApiError(401, "authentication required");
+            String cred;
+            try {
+                cred = new String(Base64.getDecoder().decode(h.substring(6).trim()), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                throw new ApiError(401, "malformed credentials");
+            }
+            int colon = cred.indexOf(':');
+            if (colon < 0) throw new ApiError(401, "malformed credentials");
+            String email = cred.substring(0, colon), pw = cred.substring(colon + 1);
+            User u = sys.authenticate(email, pw);
+            if (u == null) throw new ApiError(401, "wrong credentials");
+            return u;
+        }
+
+        private void route(HttpExchange ex, User user, String method, String[] p) throws IOException {
+            switch (p[0]) {
+                case "me":
+                    if (p.length != 1) break;
+                    allow(method, "GET");
+                    send(ex, 200, sys.read(() -> "{\"empId\":" + user.getEmpId() + ",\"name\":" + Json.str(user.getName())
+                            + ",\"email\":" + Json.str(user.getEmail()) + ",\"role\":" + Json.str(user.getClass().getSimpleName())
+                            + ",\"leaveBalance\":" + user.getLeaveBalance() + "}"));
+                    return;
+                case "requests":
+                    if (p.length == 1) {
+                        if (method.equals("GET")) { send(ex, 200, listRequests(user, query(ex))); return; }
+                        allow(method, "POST");
+                        send(ex, 201, Json.request(submit(ex, employee(user), null)));
+                        return;
+                    }
+                    int id = parseId(p[1]);
+                    if (p.length == 2) {
+                        allow(method, "GET", "PUT");
+                        if (method.equals("GET")) {
+                            LeaveRequest r = visible(user, id);
+                            send(ex, 200, sys.read(() -> Json.request(r)));
+                        } else {
+                            Employee emp = employee(user);
+                            send(ex, 200, Json.request(submit(ex, emp, visible(user, id))));
+                        }
+                        return;
+                    }
+                    if (p.length != 3) break;
+                    allow(method, "POST");
+                    LeaveRequest r = visible(user, id);
+                    switch (p[2]) {
+                        case "cancel":
+                            sys.cancelLeave(employee(user), r);
+                            send(ex, 200, "{\"reqId\":" + r.getReqId() + ",\"status\":\"CANCELLED\"}");
+                            return;
+                        case "approve": manager(user); sys.decideLeave(r, true); break;
+                        case "reject": manager(user); sys.decideLeave(r, false); break;
+                        default: throw new ApiError(404, "no such action: " + p[2]);
+                    }
+                    send(ex, 200, sys.read(() -> Json.request(r)));
+                    return;
+                case "password":
+                    if (p.length != 1) break;
+                    allow(method, "POST");
+                    changePassword(ex, user);
+                    send(ex, 200, "{\"empId\":" + user.getEmpId() + ",\"passwordChanged\":true}");
+                    return;
+                case "decisions":
+                    if (p.length != 1) break;
+                    allow(method, "POST");
+                    manager(user);
+                    send(ex, 200, bulkDecide(ex));
+                    return;
+                case "out":
+                    if (p.length != 1) break;
+                    allow(method, "GET");
+                    staff(user);
+                    send(ex, 200, whoIsOut(query(ex)));
+                    return;
+                case "stats":
+                    if (p.length != 1) break;
+                    allow(method, "GET");
+                    staff(user);
+                    send(ex, 200, sys.read(() -> "{\"employees\":" + sys.countRole(Employee.class)
+                            + ",\"requests\":" + sys.requests.size()
+                            + ",\"approved\":" + sys.stats.count("APPROVED") + ",\"rejected\":" + sys.stats.count("REJECTED")
+                            + ",\"pending\":" + sys.stats.count("PENDING")
+                            + ",\"leavesTaken\":" + sys.stats.employeeLeavesTaken() + "}"));
+                    return;
+                case "export":
+                    if (p.length != 2) break;
+                    allow(method, "GET");
+                    export(ex, user, p[1]);
+                    return;
+                default:
+                    break;
+            }
+            throw new ApiError(404, "no such endpoint");
+        }
+
+        private static void allow(String method, String... methods) {
+            for (String m : methods) if (m.equals(method)) return;
+            throw new ApiError(405, "method " + method + " not allowed");
+        }
+        private static int parseId(String s) {
+            if (!InputValidator.isInt(s)) throw new ApiError(404, "no such request: " + s);
+            return Integer.parseInt(s);
+        }
+        private static Employee employee(User u) {
+            if (!(u instanceof Employee)) throw new ApiError(403, "only employees can apply for or change leave");
+            return (Employee) u;
+        }
+        private static void staff(User u) {
+            if (u instanceof Employee) throw new ApiError(403, "managers and admins only");
+        }
+        private static void manager(User u) {
+            if (!(u instanceof Manager)) throw new ApiError(403, "only managers can approve or reject");
+        }
+        // Employees only see their own requests; others get 404 rather than a hint that it exists.
+        private LeaveRequest visible(User user, int reqId) {
+            LeaveRequest r = sys.read(() -> sys.requestIndex.byReqId(reqId));
+            if (r == null || (user instanceof Employee && r.getEmpId() != user.getEmpId()))
+                throw new ApiError(404, "no such request: " + reqId);
+            return r;
+        }
+
+        private LeaveRequest submit(HttpExchange ex, Employee emp, LeaveRequest replacing) throws IOException {
+            Map<String, String> body = Json.parseObject(readBody(ex));
+            LocalDate start = LocalDate.parse(required(body, "start"));
+            LocalDate end = LocalDate.parse(required(body, "end"));
+            String type = body.getOrDefault("type", "Others");
+            String reason = body.getOrDefault("reason", "");
+            return sys.submitLeave(emp, start, end, type == null ? "Others" : type, reason == null ? "" : reason, replacing);
+        }
+        // POST /api/password {"password"}: also clears the must-change flag of imported accounts.
+        private void changePassword(HttpExchange ex, User user) throws IOException {
+            String pw = required(Json.parseObject(readBody(ex)), "password");
+            if (!InputValidator.isValidPassword(pw)) throw new IllegalArgumentException("password needs at least 8 characters, with a letter and a digit");
+            if (pw.equals(sys.read(user::getPassword))) throw new IllegalArgumentException("the new password must differ from the current one");
+            sys.commitPassword(user, pw, false);
+        }
+        private static String required(Map<String, String> body, String key) {
+            String v = body.get(key);
+            if (v == null) throw new IllegalArgumentException("missing field: " + key);
+            return v;
+        }
+        private static String readBody(HttpExchange ex) throws IOException {
+            try (InputStream in = ex.getRequestBody()) {
+                byte[] b = in.readNBytes(MAX_BODY + 1);
+                if (b.length > MAX_BODY) throw new ApiError(413, "request body too large");
+                return new String(b, StandardCharsets.UTF_8);
+            }
+        }
+
+        // POST /api/decisions {"action":"approve"|"reject", "empId", "team", "type", "from", "to", "maxDays"}
+        private String bulkDecide(HttpExchange ex) throws IOException {
+            Map<String, String> body = Json.parseObject(readBody(ex));
+            String action = required(body, "action");
+            if (!action.equals("approve") && !action.equals("reject")) throw new IllegalArgumentException("action must be approve or reject");
+            LeaveFilter f = new LeaveFilter();
+            if (body.get("empId") != null) f.empId = intParam(body, "empId", 0);
+            if (body.get("team") != null) f.team = teamName(body.get("team"));
+            if (body.get("type") != null) f.type = LeaveFilter.type(body.get("type"));
+            if (body.get("from") != null) f.from = LocalDate.parse(body.get("from"));
+            if (body.get("to") != null) f.to = LocalDate.parse(body.get("to"));
+            f.maxDays = intParam(body, "maxDays", 0);
+            BulkResult res = sys.decideMatching(f, action.equals("approve"));
+            StringBuilder over = new StringBuilder();
+            for (int id : res.overCapacity) over.append(over.length() == 0 ? "" : ",").append(id);
+            return "{\"matched\":" + res.matched + ",\"approved\":" + res.approved + ",\"rejected\":" + res.rejected
+                    + ",\"daysRestored\":" + res.daysRestored + ",\"overCapacity\":[" + over + "],\"millis\":" + res.millis + "}";
+        }
+        // GET /api/requests?empId=&status=&offset=&limit=  (employees: own requests only)
+        private String listRequests(User user, Map<String, String> q) {
+            int offset = intParam(q, "offset", 0), limit = Math.min(intParam(q, "limit", 100), MAX_PAGE);
+            if (offset < 0 || limit < 0) throw new IllegalArgumentException("offset/limit must not be negative");
+            String status = q.get("status");
+            if (status != null) LeaveRequest.statusCode(status.toUpperCase(Locale.ROOT));
+            String wantStatus = status == null ? null : status.toUpperCase(Locale.ROOT);
+            Integer empId = user instanceof Employee ? Integer.valueOf(user.getEmpId())
+                    : q.containsKey("empId") ? Integer.valueOf(intParam(q, "empId", 0)) : null;
+            return sys.read(() -> {
+                Collection<LeaveRequest> src = empId == null ? sys.requests.values()
+                        : wantStatus == null ? sys.requestIndex.forEmployee(empId) : sys.requestIndex.forEmployee(empId, wantStatus);
+                StringBuilder sb = new StringBuilder("{\"requests\":[");
+                int matched = 0, written = 0;
+                for (LeaveRequest r : src) {
+                    if (wantStatus != null && !r.getStatus().equals(wantStatus)) continue;
+                    if (matched++ < offset || written >= limit) continue;
+                    if (written++ > 0) sb.append(',');
+                    sb.append(Json.request(r));
+                }
+                return sb.append("],\"total\":").append(matched).append(",\"offset\":").append(offset)
+                         .append(",\"limit\":").append(limit).append('}').toString();
+            });
+        }
+        // GET /api/out?from=YYYY-MM-DD[&to=YYYY-MM-DD]
+        private String whoIsOut(Map<String, String> q) {
+            String from = q.get("from");
+            if (from == null) throw new IllegalArgumentException("missing parameter: from");
+            int a = (int) LocalDate.parse(from).toEpochDay();
+            int b = q.containsKey("to") ? (int) LocalDate.parse(q.get("to")).toEpochDay() : a;
+            if (b < a) throw new IllegalArgumentException("End before Start!");
+            return sys.read(() -> {
+                StringBuilder sb = new StringBuilder("{\"out\":[");
+                int n = 0;
+                for (LeaveRequest r : sys.absences.outBetween(a, b)) {
+                    if (n++ > 0) sb.append(',');
+                    User u = sys.getUserById(r.getEmpId());
+                    sb.append("{\"name\":").append(Json.str(u == null ? "?" : u.getName())).append(",\"request\":").append(Json.request(r)).append('}');
+                }
+                return sb.append("]}").toString();
+            });
+        }
+
+        // GET /api/export/{requests|team-stats|feedback|audit}.{csv|txt}. Rendered to a temp file
+        // under the state lock through the usual export writers, then streamed without holding it.
+        private void export(HttpExchange ex, User user, String name) throws IOException {
+            int dot = name.lastIndexOf('.');
+            String what = dot < 0 ? name : name.substring(0, dot), fmt = dot < 0 ? "" : name.substring(dot + 1);
+            boolean csv = fmt.equals("csv");
+            if (!csv && !fmt.equals("txt")) throw new ApiError(404, "exports are .csv or .txt");
+            ExportJob job;
+            Metrics.Op op;
+            switch (what) {
+                case "requests":
+                    Supplier<Collection<LeaveRequest>> list = user instanceof Employee
+                            ? () -> sys.requestIndex.forEmployee(user.getEmpId()) : sys.requests::values;
+                    job = csv ? out -> sys.writeLeaveCSV(out, list.get()) : out -> sys.writeLeaveTXT(out, list.get());
+                    op = csv ? Metrics.Op.EXPORT_REQUESTS_CSV : Metrics.Op.EXPORT_REQUESTS_TXT;
+                    break;
+                case "team-stats":
+                    staff(user);
+                    job = csv ? sys::writeTeamStatsCSV : sys::writeTeamStatsTXT;
+                    op = csv ? Metrics.Op.EXPORT_TEAM_STATS_CSV : Metrics.Op.EXPORT_TEAM_STATS_TXT;
+                    break;
+                case "feedback":
+                    if (!(user instanceof Admin)) throw new ApiError(403, "admins only");
+                    job = csv ? sys::writeFeedbackCSV : sys::writeFeedbackTXT;
+                    op = csv ? Metrics.Op.EXPORT_FEEDBACK_CSV : Metrics.Op.EXPORT_FEEDBACK_TXT;
+                    break;
+                case "audit":
+                    staff(user);
+                    job = csv ? sys::writeBlockchainCSV : sys::writeBlockchainTXT;
+                    op = csv ? Metrics.Op.EXPORT_AUDIT_CSV : Metrics.Op.EXPORT_AUDIT_TXT;
+                    break;
+                default:
+                    throw new ApiError(404, "no such export: " + what);
+            }
+            Path tmp = Files.createTempFile("sls-export", "." + fmt);
+            try {
+                long t0 = System.nanoTime();
+                boolean ok = false;
+                sys.store.readLock().lock();
+                try (ExportSink out = ExportSink.toFile(tmp, null)) {
+                    job.write(out);
+                    out.finish();
+                    ok = true;
+                } finally {
+                    Metrics.record(op, t0, ok);
+                    sys.store.readLock().unlock();
+                }
+                ex.getResponseHeaders().set("Content-Type", csv ? "text/csv; charset=utf-8" : "text/plain; charset=utf-8");
+                ex.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"" + what + "." + fmt + "\"");
+                ex.sendResponseHeaders(200, Files.size(tmp));
+                try (OutputStream os = ex.getResponseBody()) { Files.copy(tmp, os); }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+
+        private static Map<String, String> query(HttpExchange ex) {
+            Map<String, String> q = new HashMap<>();
+            String raw = ex.getRequestURI().getRawQuery();
+            if (raw == null) return q;
+            for (String kv : raw.split("&")) {
+                if (kv.isEmpty()) continue;
+                int eq = kv.indexOf('=');
+                String k = eq < 0 ? kv : kv.substring(0, eq), v = eq < 0 ? "" : kv.substring(eq + 1);
+                q.put(URLDecoder.decode(k, StandardCharsets.UTF_8), URLDecoder.decode(v, StandardCharsets.UTF_8));
+            }
+            return q;
+        }
+        private static int intParam(Map<String, String> q, String key, int def) {
+            String v = q.get(key);
+            if (v == null) return def;
+            if (!InputValidator.isInt(v)) throw new IllegalArgumentException(key + " must be a number");
+            return Integer.parseInt(v);
+        }
+        private static void send(HttpExchange ex, int status, String json) throws IOException {
+            byte[] body = json.getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            ex.sendResponseHeaders(status, body.length);
+            try (OutputStream os = ex.getResponseBody()) { os.write(body); }
+        }
+
+        // java SmartLeaveSystem serve [port]: same data files as the console, no menus.
+        static void serve(SmartLeaveSystem sys, String[] args) {
+            int port = args.length > 1 && InputValidator.isInt(args[1]) ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+            ApiServer api;
+            try {
+                api = new ApiServer(sys, port);
+            } catch (IOException e) {
+                printlnError("Cannot listen on port " + port + ": " + e.getMessage());
+                sys.closeStore();
+                return;
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                api.stop();
+                sys.lockAll();
+                try { sys.closeStore(); }
+                finally { sys.unlockAll(); }
+                System.out.println("Server stopped.");
+            }));
+            api.start();
+            printlnSuccess("API listening on http://localhost:" + api.port() + "/api/ ("
+                    + (api.usesVirtualThreads() ? "virtual thread per request" : "thread pool, no virtual threads on this JDK") + "). Ctrl+C to stop.");
+        }
+    }
+
+    // ---------- Batch mode ----------
+    // Headless commands for cron jobs: no menus, no colors, exit status 0 only if every command
+    // succeeded. A script runs one command per line in the same JVM (# starts a comment, "..."
+    // quotes a path with spaces) and stops at the first failure; "-" reads the script from stdin.
+    //   java -jar smart-leave.jar export team-stats txt
+    //   java -jar smart-leave.jar script nightly.txt
+    static class BatchRunner {
+        static final String USAGE = String.join("\n",
+                "Commands:",
+                "  export requests|team-stats|feedback|audit csv|txt [file]",
+                "  export employee <EmpID> csv|txt [file]",
+                "  export proof <ReqID> [file]",
+                "  verify-chain [full]",
+                "  verify-counters",
+                "  predict-all [file]",
+                "  stress-scan [top]",
+                "  import users|requests <file.csv>",
+                "  snapshot",
+                "  metrics [file]",
+                "  script <file>|-");
+
+        private final SmartLeaveSystem sys;
+        BatchRunner(SmartLeaveSystem sys) { this.sys = sys; }
+
+        static boolean isCommand(String word) {
+            switch (word) {
+                case "export": case "verify-chain": case "verify-counters": case "import":
+                case "predict-all": case "stress-scan": case "snapshot": case "metrics": case "script": case "help":
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        // One command; false if it failed (the reason has been printed).
+        boolean run(List<String> cmd) {
+            if (cmd.isEmpty()) return true;
+            List<String> a = cmd.subList(1, cmd.size());
+            try {
+                switch (cmd.get(0)) {
+                    case "export": return export(a);
+                    case "verify-chain":
+                        if (sys.chain == null) return fail("audit chain is not open");
+                        return BlockchainSimulator.verifyIntegrity(sys.chain, arg(a, 0, "").equals("full"));
+                    case "verify-counters": return sys.verifyCounters();
+                    case "predict-all":
+                        sys.predictAll(a.isEmpty() ? sys.forecastFile() : Paths.get(a.get(0)));
+                        return true;
+                    case "stress-scan": {
+                        int top = a.isEmpty() ? STRESS_TOP_DEFAULT : intArg(a, 0, "top");
+                        if (top <= 0) throw new IllegalArgumentException("top must be at least 1");
+                        sys.stressScanTables(top, false);
+                        return true;
+                    }
+                    case "import": return importCsv(a);
+                    case "snapshot":
+                        if (sys.journal == null) return fail("no store to snapshot");
+                        sys.snapshot();
+                        printlnSuccess("Snapshot written to " + sys.snapshotFile);
+                        return true;
+                    case "metrics":
+                        String text = Metrics.report(null, System.nanoTime() - Metrics.STARTED);
+                        if (a.isEmpty()) System.out.print(text);
+                        else Files.writeString(Paths.get(a.get(0)), text, StandardCharsets.UTF_8);
+                        return true;
+                    case "script": return script(a.isEmpty() ? null : a.get(0));
+                    case "help": System.out.println(USAGE); return true;
+                    default: return fail("unknown command: " + cmd.get(0) + "\n" + USAGE);
+                }
+            } catch (IOException | UncheckedIOException | IllegalArgumentException e) {
+                return fail(cmd.get(0) + ": " + e.getMessage());
+            }
         }
-    }
-    private static String sanitize(String s) {
-        if (s == null) return "";
-        return s.replaceAll(",", " "); // avoid CSV breaking
-    }
 
-    // ---------- Export Generators ----------
-    private String generateLeaveCSVString(List<LeaveRequest> list) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("ReqID,EmpID,Start,End,Days,Type,Status,Comments\n");
-        for (LeaveRequest r : list) {
-            sb.append(r.getReqId()).append(",")
-              .append(r.getEmpId()).append(",")
-              .append(r.getStart()).append(",")
-              .append(r.getEnd()).append(",")
-              .append(r.getRequestedDays()).append(",")
-              .append(sanitize(r.getType())).append(",")
-              .append(sanitize(r.getStatus())).append(",")
-              .append(sanitize(r.getComments())).append("\n");
-        }
-        return sb.toString();
-    }
-    private String generateLeaveTXTString(List<LeaveRequest> list) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("===== Leave Requests Report =====\n\n");
-        for (LeaveRequest r : list) {
-            sb.append("Request ID: ").append(r.getReqId()).append("\n");
-            User u = getUserById(r.getEmpId());
-            String name = (u==null) ? "Unknown" : u.getName();
-            sb.append("Employee  : ").append(name).append(" (").append(r.getEmpId()).append(")\n");
-            sb.append("Type      : ").append(r.getType()).append("\n");
-            sb.append("From      : ").append(r.getStart()).append("\n");
-            sb.append("To        : ").append(r.getEnd()).append("\n");
-            sb.append("Days      : ").append(r.getRequestedDays()).append("\n");
-            sb.append("Reason    : ").append(r.getComments()).append("\n");
-            sb.append("Status    : ").append(r.getStatus()).append("\n");
-            sb.append("----------------------------------------\n");
-        }
-        return sb.toString();
-    }
-
-    private String generateTeamStatsCSVString() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("EmpID,Name,LeavesUsed,LeaveBalance\n");
-        for (User u : users) if (u instanceof Employee) {
-            sb.append(u.getEmpId()).append(",")
-              .append(sanitize(u.getName())).append(",")
-              .append(u.getTotalLeavesAllowed() - u.getLeaveBalance()).append(",")
-              .append(u.getLeaveBalance()).append("\n");
-        }
-        return sb.toString();
-    }
-    private String generateTeamStatsTXTString() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("===== Team Leave Summary =====\n\n");
-        for (User u : users) if (u instanceof Employee) {
-            sb.append("EmpID : ").append(u.getEmpId()).append("\n");
-            sb.append("Name  : ").append(u.getName()).append("\n");
-            sb.append("Leaves Used : ").append(u.getTotalLeavesAllowed() - u.getLeaveBalance()).append("\n");
-            sb.append("Leave Balance: ").append(u.getLeaveBalance()).append("\n");
-            sb.append("--------------------------------\n");
-        }
-        return sb.toString();
-    }
-
-    private String generateEmployeeCSVString(Employee emp) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("EmpID,Name,Email,TotalAllowed,LeaveBalance,Badges,LastLogin\n");
-        sb.append(emp.getEmpId()).append(",")
-          .append(sanitize(emp.getName())).append(",")
-          .append(sanitize(emp.getEmail())).append(",")
-          .append(emp.getTotalLeavesAllowed()).append(",")
-          .append(emp.getLeaveBalance()).append(",")
-          .append(emp.getBadges()).append(",")
-          .append(sanitize(emp.getLastLogin())).append("\n");
-        return sb.toString();
-    }
-    private String generateEmployeeTXTString(Employee emp) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("===== Employee Profile =====\n");
-        sb.append("EmpID: ").append(emp.getEmpId()).append("\n");
-        sb.append("Name: ").append(emp.getName()).append("\n");
-        sb.append("Email: ").append(emp.getEmail()).append("\n");
-        sb.append("Total Allowed: ").append(emp.getTotalLeavesAllowed()).append("\n");
-        sb.append("Leave Balance: ").append(emp.getLeaveBalance()).append("\n");
-        sb.append("Badges: ").append(emp.getBadges()).append("\n");
-        sb.append("Last Login: ").append(emp.getLastLogin()).append("\n");
-        sb.append("-----------------------------\n");
-        // append their specific requests
-        sb.append("\nRequests:\n");
-        for (LeaveRequest r : requests) if (r.getEmpId() == emp.getEmpId()) {
-            sb.append("Req#").append(r.getReqId()).append(" | ").append(r.getType()).append(" | ")
-              .append(r.getStart()).append(" -> ").append(r.getEnd()).append(" | Days: ").append(r.getRequestedDays())
-              .append(" | Status: ").append(r.getStatus()).append("\n");
+        private boolean export(List<String> a) throws IOException {
+            String what = arg(a, 0, "");
+            if (what.equals("proof")) {
+                int reqId = intArg(a, 1, "ReqID");
+                if (sys.chain == null) return fail("audit chain is not open");
+                if (sys.chain.blocksOf(reqId) == 0) return fail("no audit blocks for ReqID " + reqId);
+                String file = arg(a, 2, "audit_proof_" + reqId + "_" + timestampForFile() + ".txt");
+                return exportToFile(file, Metrics.Op.EXPORT_PROOF, out -> sys.chain.writeProof(out, reqId));
+            }
+            Employee emp = null;
+            int at = 1;
+            if (what.equals("employee")) {
+                int id = intArg(a, 1, "EmpID");
+                if (!(sys.getUserById(id) instanceof Employee)) return fail("no employee with EmpID " + id);
+                emp = (Employee) sys.getUserById(id);
+                at = 2;
+            }
+            String fmt = arg(a, at, "");
+            if (!fmt.equals("csv") && !fmt.equals("txt")) return fail("export format must be csv or txt");
+            boolean csv = fmt.equals("csv");
+            Employee e = emp;
+            String prefix;
+            Metrics.Op op;
+            ExportJob job;
+            switch (what) {
+                case "requests": case "leave-requests":
+                    prefix = "leave_requests_";
+                    op = csv ? Metrics.Op.EXPORT_REQUESTS_CSV : Metrics.Op.EXPORT_REQUESTS_TXT;
+                    job = csv ? out -> sys.writeLeaveCSV(out, sys.requests.values()) : out -> sys.writeLeaveTXT(out, sys.requests.values());
+                    break;
+                case "team-stats":
+                    prefix = "team_stats_";
+                    op = csv ? Metrics.Op.EXPORT_TEAM_STATS_CSV : Metrics.Op.EXPORT_TEAM_STATS_TXT;
+                    job = csv ? sys::writeTeamStatsCSV : sys::writeTeamStatsTXT;
+                    break;
+                case "feedback":
+                    prefix = "hr_feedback_";
+                    op = csv ? Metrics.Op.EXPORT_FEEDBACK_CSV : Metrics.Op.EXPORT_FEEDBACK_TXT;
+                    job = csv ? sys::writeFeedbackCSV : sys::writeFeedbackTXT;
+                    break;
+                case "audit":
+                    prefix = "blockchain_audit_";
+                    op = csv ? Metrics.Op.EXPORT_AUDIT_CSV : Metrics.Op.EXPORT_AUDIT_TXT;
+                    job = csv ? sys::writeBlockchainCSV : sys::writeBlockchainTXT;
+                    break;
+                case "employee":
+                    prefix = "employee_" + e.getEmpId() + "_";
+                    op = csv ? Metrics.Op.EXPORT_EMPLOYEE_CSV : Metrics.Op.EXPORT_EMPLOYEE_TXT;
+                    job = csv ? out -> sys.writeEmployeeCSV(out, e) : out -> sys.writeEmployeeTXT(out, e);
+                    break;
+                default:
+                    return fail("no such export: " + what + "\n" + USAGE);
+            }
+            return exportToFile(arg(a, at + 1, prefix + timestampForFile() + "." + fmt), op, job);
         }
-        return sb.toString();
-    }
 
-    private String generateFeedbackCSVString() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("From,Message\n");
-        for (HRFeedback fb : feedbacks) {
-            sb.append(sanitize(fb.getEmpName())).append(",")
-              .append(sanitize(fb.getMessage())).append("\n");
+        private boolean importCsv(List<String> a) throws IOException {
+            String kind = arg(a, 0, "");
+            if (!kind.equals("users") && !kind.equals("requests")) return fail("import users|requests <file.csv>");
+            Path file = Paths.get(arg(a, 1, ""));
+            if (a.size() < 2) return fail("import " + kind + " needs a file");
+            BulkImporter importer = new BulkImporter(sys);
+            BulkImporter.Report rep = kind.equals("users") ? importer.importUsers(file) : importer.importRequests(file);
+            sys.printImportReport(rep);
+            if (sys.journal != null && rep.imported > 0) sys.snapshot();
+            return rep.rejected == 0;
         }
-        return sb.toString();
-    }
-    private String generateFeedbackTXTString() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("===== HR Feedback =====\n\n");
-        for (HRFeedback fb : feedbacks) {
-            sb.append("From: ").append(fb.getEmpName()).append("\n");
-            sb.append("Message: ").append(fb.getMessage()).append("\n");
-            sb.append("--------------------------------\n");
+
+        private boolean script(String name) throws IOException {
+            if (name == null) return fail("script needs a file (or - for stdin)");
+            BufferedReader in = name.equals("-") ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                    : Files.newBufferedReader(Paths.get(name), StandardCharsets.UTF_8);
+            try {
+                String line;
+                int lineNo = 0;
+                while ((line = in.readLine()) != null) {
+                    lineNo++;
+                    List<String> cmd = split(line);
+                    if (cmd.isEmpty()) continue;
+                    if (cmd.get(0).equals("script")) return fail(name + ":" + lineNo + ": scripts cannot run other scripts");
+                    System.out.println("> " + String.join(" ", cmd));
+                    if (!run(cmd)) return fail(name + ":" + lineNo + ": stopped, later commands were not run");
+                }
+                return true;
+            } finally {
+                if (!name.equals("-")) in.close();
+            }
         }
-        return sb.toString();
-    }
 
-    private String generateBlockchainCSVString() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("ReqID,EmpID,Status,Hash\n");
-        for (LeaveRequest r : requests) {
-            sb.append(r.getReqId()).append(",")
-              .append(r.getEmpId()).append(",")
-              .append(sanitize(r.getStatus())).append(",")
-              .append(BlockchainSimulator.hashLeave(r)).append("\n");
+        // Whitespace-separated words; "..." keeps spaces; # outside quotes starts a comment.
+        static List<String> split(String line) {
+            List<String> words = new ArrayList<>();
+            StringBuilder w = new StringBuilder();
+            boolean quoted = false, any = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (c == '"') { quoted = !quoted; any = true; }
+                else if (!quoted && c == '#') break;
+                else if (!quoted && Character.isWhitespace(c)) {
+                    if (any) words.add(w.toString());
+                    w.setLength(0);
+                    any = false;
+                } else { w.append(c); any = true; }
+            }
+            if (quoted) throw new IllegalArgumentException("unterminated quote in: " + line);
+            if (any) words.add(w.toString());
+            return words;
         }
-        return sb.toString();
-    }
-    private String generateBlockchainTXTString() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("===== Blockchain Audit Trail =====\n\n");
-        for (LeaveRequest r : requests) {
-            sb.append("ReqID: ").append(r.getReqId()).append(" | EmpID: ").append(r.getEmpId()).append("\n");
-            sb.append("Status: ").append(r.getStatus()).append("\n");
-            sb.append("Hash: ").append(BlockchainSimulator.hashLeave(r)).append("\n");
-            sb.append("--------------------------------\n");
+        private static String arg(List<String> a, int i, String def) { return i < a.size() ? a.get(i) : def; }
+        private static int intArg(List<String> a, int i, String what) {
+            String v = arg(a, i, "");
+            if (!InputValidator.isInt(v)) throw new IllegalArgumentException(what + " must be a number");
+            return Integer.parseInt(v);
+        }
+        private static boolean fail(String msg) {
+            printlnError(msg);
+            return false;
         }
-        return sb.toString();
     }
 
     // ---------- Main ----------
     public static void main(String[] args) {
         SmartLeaveSystem sys = new SmartLeaveSystem();
-        System.out.println(Colors.color("\n════════ SMART LEAVE MANAGEMENT SYSTEM ════════\n", Colors.PURPLE));
-        sys.loadDemoData();
+        boolean batch = args.length > 0 && BatchRunner.isCommand(args[0]);
+        boolean serve = args.length > 0 && args[0].equals("serve");
+        if (batch) Colors.enabled = false;
+        else System.out.println(Colors.color("\n════════ SMART LEAVE MANAGEMENT SYSTEM ════════\n", Colors.PURPLE));
+        if (!sys.openStore(Paths.get(SNAPSHOT_FILE), Paths.get(JOURNAL_FILE), Paths.get(AUDIT_FILE))) {
+            printlnError("Refusing to start. Stop the other instance, or move or repair " + SNAPSHOT_FILE + " / " + JOURNAL_FILE + " / " + AUDIT_FILE + ".");
+            System.exit(2);
+        }
+        Metrics.start();
+        if (serve) {
+            if (sys.users.isEmpty()) printlnInfo("The store has no users yet; load them with: import users <file.csv>");
+            ApiServer.serve(sys, args);
+            return;
+        }
+        if (batch) {
+            boolean ok = new BatchRunner(sys).run(Arrays.asList(args));
+            sys.closeStore();
+            if (!ok) System.exit(1);
+            return;
+        }
+        if (sys.users.isEmpty()) sys.loadDemoData(); // demo accounts for an interactive first run only
         while (true) {
             System.out.println(Colors.color("\nMain Menu", Colors.YELLOW));
             System.out.println("1. Employee Login");
@@ -441,37 +3951,55 @@ public class SmartLeaveSystem {
             System.out.println("5. Exit");
             System.out.print("Choose: ");
             String ch = sc.nextLine().trim();
-            switch (ch) {
-                case "1":
-                    sys.roleLogin(Employee.class); break;
-                case "2":
-                    sys.roleLogin(Manager.class); break;
-                case "3":
-                    sys.roleLogin(Admin.class); break;
-                case "4":
-                    sys.blockchainFeatureMenu(); break;
-                case "5":
-                    System.out.println("Goodbye!"); return;
-                default:
-                    printlnError("Try again!");
+            try {
+                switch (ch) {
+                    case "1":
+                        sys.roleLogin(Employee.class); break;
+                    case "2":
+                        sys.roleLogin(Manager.class); break;
+                    case "3":
+                        sys.roleLogin(Admin.class); break;
+                    case "4":
+                        sys.blockchainFeatureMenu(); break;
+                    case "5":
+                        sys.closeStore();
+                        System.out.println("Goodbye!"); return;
+                    default:
+                        printlnError("Try again!");
+                }
+            } catch (UncheckedIOException e) {
+                printlnError("Storage failure, last change was not applied: " + e.getCause().getMessage());
             }
         }
     }
 
     // ---------- Login ----------
+    // The account for these credentials, or null. Email matching ignores case. Not a login by
+    // itself: the API checks credentials on every request.
+    User authenticate(String email, String password) {
+        User u = read(() -> users.byEmail(email));
+        return u != null && u.getPassword().equals(password) ? u : null;
+    }
+    // authenticate() for an interactive login; counted in the login metric.
+    User login(String email, String password) {
+        long t0 = System.nanoTime();
+        User u = authenticate(email, password);
+        Metrics.record(Metrics.Op.LOGIN, t0, u != null);
+        return u;
+    }
     void roleLogin(Class<? extends User> clazz) {
         User u = null;
         String email = promptValidEmail("Email");
         System.out.print("Password: "); String pw = sc.nextLine().trim();
-        for (User usr : users) {
-            if (usr.getEmail().equalsIgnoreCase(email)
-                    && usr.getPassword().equals(pw)
-                    && clazz.isInstance(usr)) {
-                u = usr;
-                u.setLastLogin(LocalDate.now() + " " + LocalTime.now().withNano(0));
-                printlnSuccess("Logged in as " + u.getName() + " (" + clazz.getSimpleName() + ")");
-                break;
+        User usr = login(email, pw);
+        if (usr != null && clazz.isInstance(usr)) {
+            if (read(usr::mustChangePassword) && !changeOneTimePassword(usr)) {
+                printlnError("Login cancelled; the one-time password has to be changed first.");
+                return;
             }
+            u = usr;
+            commitLogin(u, LocalDate.now() + " " + LocalTime.now().withNano(0));
+            printlnSuccess("Logged in as " + u.getName() + " (" + clazz.getSimpleName() + ")");
         }
         if (u != null)
             u.viewDashboard(this);
@@ -479,11 +4007,28 @@ public class SmartLeaveSystem {
             printlnError("No such " + clazz.getSimpleName() + " or wrong credentials.");
     }
 
+    // Imported accounts log in once with their one-time password and must replace it straight away.
+    boolean changeOneTimePassword(User u) {
+        printlnInfo("You are using a one-time password. Choose a new one (at least 8 characters, with a letter and a digit).");
+        while (true) {
+            System.out.print("New password [blank = cancel]: ");
+            String pw = sc.nextLine().trim();
+            if (pw.isEmpty()) return false;
+            if (!InputValidator.isValidPassword(pw)) { printlnError("At least 8 characters, with a letter and a digit."); continue; }
+            if (pw.equals(u.getPassword())) { printlnError("The new password must differ from the one-time password."); continue; }
+            System.out.print("Repeat new password: ");
+            if (!sc.nextLine().trim().equals(pw)) { printlnError("Passwords do not match."); continue; }
+            commitPassword(u, pw, false);
+            printlnSuccess("Password changed.");
+            return true;
+        }
+    }
+
     // ========== EMPLOYEE MENU ==========
     void employeeMenu(Employee emp) {
         while (true) {
             printlnInfo("Employee Dashboard (" + emp.getName() + ")");
-            System.out.println("Leaves: " + emp.getLeaveBalance() + "/" + emp.getTotalLeavesAllowed() + " | Badges: " + emp.getBadges());
+            System.out.println("Leaves: " + emp.getLeaveBalance() + "/" + emp.getTotalLeavesAllowed() + " | Badges: " + emp.getBadges() + badgeRank(emp));
             System.out.println("1. Apply for Leave");
             System.out.println("2. Cancel/Edit Pending Leave");
             System.out.println("3. View Leave History");
@@ -500,8 +4045,8 @@ public class SmartLeaveSystem {
                 case "2": cancelEditPendingLeave(emp); break;
                 case "3": empHistoryTable(emp); break;
                 case "4": exportEmpData(emp); break;
-                case "5": AIStressDetector.analyze(emp); break;
-                case "6": LeavePatternPredictor.predict(emp, requests); break;
+                case "5": AIStressDetector.analyze(assessStress(emp)); break;
+                case "6": showForecast(emp); break;
                 case "7": feedback(emp); break;
                 case "8": QRGenerator.printQR(emp.getName() + "#" + emp.getEmpId()); break;
                 case "9": return;
@@ -518,13 +4063,11 @@ public class SmartLeaveSystem {
         System.out.print("Choose: ");
         String ch = sc.nextLine().trim();
         if (ch.equals("1")) {
-            String csv = generateEmployeeCSVString(u);
             String fname = "employee_" + u.getEmpId() + "_" + timestampForFile() + ".csv";
-            saveToFile(fname, csv);
+            exportToFile(fname, Metrics.Op.EXPORT_EMPLOYEE_CSV, out -> writeEmployeeCSV(out, u));
         } else if (ch.equals("2")) {
-            String txt = generateEmployeeTXTString(u);
             String fname = "employee_" + u.getEmpId() + "_" + timestampForFile() + ".txt";
-            saveToFile(fname, txt);
+            exportToFile(fname, Metrics.Op.EXPORT_EMPLOYEE_TXT, out -> writeEmployeeTXT(out, u));
         } else {
             System.out.println("Name: " + u.getName());
             System.out.println("Leaves Used: " + (u.getTotalLeavesAllowed() - u.getLeaveBalance()));
@@ -534,27 +4077,29 @@ public class SmartLeaveSystem {
         }
     }
 
-    void applyLeave(Employee emp) {
-        String startDate = promptValidDate("Start Date");
-        String endDate = promptValidDate("End Date");
-        LocalDate s = LocalDate.parse(startDate);
-        LocalDate e = LocalDate.parse(endDate);
-        int requestedDays = (int) (e.toEpochDay() - s.toEpochDay()) + 1;
-        if (requestedDays < 1) { printlnError("End before Start!"); return; }
+    LeaveRequest applyLeave(Employee emp) {
+        LeaveRequest req = promptLeave(emp, null);
+        if (req != null) printlnSuccess("Leave submitted! Remaining: " + emp.getLeaveBalance());
+        return req;
+    }
+    // Prompts for a request and submits it; replacing = the request being edited. Null if refused.
+    LeaveRequest promptLeave(Employee emp, LeaveRequest replacing) {
+        LocalDate start = LocalDate.parse(promptValidDate("Start Date"));
+        LocalDate end = LocalDate.parse(promptValidDate("End Date"));
         System.out.print("Type (Sick/Casual/WFH/Vacation/Others): ");
         String type = sc.nextLine().trim();
         System.out.print("Reason: ");
         String reason = sc.nextLine();
-        if (emp.getLeaveBalance() < requestedDays) { printlnError("Leave balance too low!"); return; }
-        requests.add(new LeaveRequest(emp.getEmpId(), startDate, endDate, type, reason, requestedDays));
-        emp.setLeaveBalance(emp.getLeaveBalance() - requestedDays);
-        printlnSuccess("Leave submitted! Remaining: " + emp.getLeaveBalance());
+        try {
+            return submitLeave(emp, start, end, type, reason, replacing);
+        } catch (LeaveException e) {
+            printlnError(e.getMessage());
+            return null;
+        }
     }
 
     void cancelEditPendingLeave(Employee emp) {
-        List<LeaveRequest> pending = new ArrayList<>();
-        for (LeaveRequest r : requests)
-            if (r.getEmpId() == emp.getEmpId() && r.getStatus().equals("PENDING")) pending.add(r);
+        List<LeaveRequest> pending = new ArrayList<>(requestIndex.forEmployee(emp.getEmpId(), "PENDING"));
         if (pending.isEmpty()) { printlnInfo("No pending requests."); return; }
         System.out.println("Your pending requests:");
         for (LeaveRequest r : pending)
@@ -565,13 +4110,17 @@ public class SmartLeaveSystem {
                 System.out.print("Cancel(C) or Edit(E)? ");
                 String opt = sc.nextLine().trim().toUpperCase();
                 if (opt.equals("C")) {
-                    emp.setLeaveBalance(emp.getLeaveBalance() + r.getRequestedDays());
-                    requests.remove(r);
-                    printlnSuccess("Cancelled & leave restored.");
+                    try {
+                        cancelLeave(emp, r);
+                        printlnSuccess("Cancelled & leave restored.");
+                    } catch (LeaveException e) {
+                        printlnError(e.getMessage());
+                    }
                 } else if (opt.equals("E")) {
-                    applyLeave(emp);
-                    requests.remove(r);
-                    printlnSuccess("Edited (old deleted, new added).");
+                    // Old days count towards the new request; the old one is kept if the new one is refused.
+                    LeaveRequest edited = promptLeave(emp, r);
+                    if (edited == null) { printlnInfo("Edit aborted, original request kept."); return; }
+                    printlnSuccess("Edited (old deleted, new added). Remaining: " + emp.getLeaveBalance());
                 }
                 return;
             }
@@ -582,39 +4131,36 @@ public class SmartLeaveSystem {
     void empHistoryTable(Employee emp) {
         String[] headers = {"ReqID", "Type", "Start", "End", "Days", "Status", "Comments"};
         int[] widths = {6, 8, 10, 10, 4, 8, 28};
-        TableFormatter.printTableHeader(headers, widths);
-        boolean any = false;
-        for (LeaveRequest r : requests) {
-            if (r.getEmpId() == emp.getEmpId()) {
-                TableFormatter.printRow(
-                        new String[]{"" + r.getReqId(), r.getType(), r.getStart(), r.getEnd(), "" + r.getRequestedDays(), r.getStatus(), r.getComments()},
-                        widths);
-                any = true;
-            }
-        }
-        if (!any) TableFormatter.printRow(new String[]{"None", "", "", "", "", "", ""}, widths);
-        TableFormatter.printTableFooter(widths);
+        TableFormatter table = new TableFormatter(headers, widths);
+        List<LeaveRequest> mine = new ArrayList<>(requestIndex.forEmployee(emp.getEmpId()));
+        if (mine.isEmpty()) { table.header().row("None").footer().flush(); return; }
+        table.browse(mine.size(), i -> {
+            LeaveRequest r = mine.get(i);
+            return new String[]{"" + r.getReqId(), r.getType(), r.getStart(), r.getEnd(), "" + r.getRequestedDays(), r.getStatus(), r.getComments()};
+        });
     }
     void feedback(Employee emp) {
         System.out.print("Please enter feedback for HR: ");
         String fb = sc.nextLine();
-        feedbacks.add(new HRFeedback(emp.getName(), fb));
+        commitFeedback(emp, fb);
         printlnSuccess("Feedback submitted. Thank you!");
-        emp.setBadges(emp.getBadges() + 1);
     }
 
     // ========== MANAGER MENU ==========
     void managerMenu(Manager u) {
         while (true) {
             printlnInfo("Manager Dashboard (" + u.getName() + ")");
-            System.out.println("Team Leaves Used: " + getTeamLeavesUsed() + " | Badges: " + u.getBadges());
+            System.out.println((u.getTeam() == null ? "Org" : "Team " + u.getTeam()) + " Leaves Used: " + getTeamLeavesUsed(u)
+                    + " | Badges: " + u.getBadges() + badgeRank(u));
             System.out.println("1. View All Leave Requests");
             System.out.println("2. Approve/Reject Leave");
             System.out.println("3. View Team Leave Summary");
             System.out.println("4. Download Leave Request Data (CSV/TXT)");
             System.out.println("5. Download Team Statistics (CSV/TXT)");
             System.out.println("6. Team Analytics Dashboard");
-            System.out.println("7. Logout");
+            System.out.println("7. Who Is Out (date/range)");
+            System.out.println("8. Bulk Approve/Reject by Filter");
+            System.out.println("9. Logout");
             System.out.print("Choose: ");
             String c = sc.nextLine().trim();
             switch (c) {
@@ -624,61 +4170,134 @@ public class SmartLeaveSystem {
                 case "4": downloadLeaveData(); break;
                 case "5": downloadTeamStats(); break;
                 case "6": analyticsDashboard(); break;
-                case "7": return;
+                case "7": whoIsOut(); break;
+                case "8": bulkDecide(); break;
+                case "9": return;
                 default: printlnError("Invalid."); break;
             }
         }
     }
-    int getTeamLeavesUsed() {
-        int sum = 0;
-        for (User u : users)
-            if (u instanceof Employee) sum += u.getTotalLeavesAllowed() - u.getLeaveBalance();
-        return sum;
+    // Leaves used by the employees of the manager's team; org-wide for a manager in no team.
+    long getTeamLeavesUsed(User mgr) {
+        return read(() -> mgr.getTeam() == null ? stats.employeeLeavesTaken() : stats.leavesUsed(mgr.getTeam()));
     }
     void viewAllTable() {
-        String[] headers = {"ReqID", "EmpID", "Start", "End", "Days", "Type", "Status", "Comments"};
-        int[] widths = {6, 6, 10, 10, 4, 8, 8, 20};
-        TableFormatter.printTableHeader(headers, widths);
-        for (LeaveRequest r : requests) {
-            TableFormatter.printRow(
-                    new String[]{
-                            "" + r.getReqId(), "" + r.getEmpId(), r.getStart(), r.getEnd(), "" + r.getRequestedDays(), r.getType(), r.getStatus(), r.getComments()
-                    }, widths);
+        String[] headers = {"ReqID", "EmpID", "Start", "End", "Days", "Type", "Status", "Capacity", "Comments"};
+        int[] widths = {6, 6, 10, 10, 4, 8, 8, 8, 20};
+        int breaches = 0;
+        for (User u : users)
+            for (LeaveRequest r : requestIndex.forEmployee(u.getEmpId(), "PENDING"))
+                if (peakWith(r) > teamLimit(u.getTeam())) breaches++;
+        // Capacity is only worked out for the rows on screen.
+        List<LeaveRequest> rows = new ArrayList<>(requests.values());
+        new TableFormatter(headers, widths).browse(rows.size(), i -> {
+            LeaveRequest r = rows.get(i);
+            String cap = "";
+            String team = teamOf(r.getEmpId());
+            if (r.isPending() && team != null) {
+                int peak = peakWith(r), limit = teamLimit(team);
+                cap = peak > limit ? "OVER " + peak + "/" + limit : "ok";
+            }
+            return new String[]{
+                    "" + r.getReqId(), "" + r.getEmpId(), r.getStart(), r.getEnd(), "" + r.getRequestedDays(), r.getType(), r.getStatus(), cap, r.getComments()
+            };
+        });
+        if (breaches > 0)
+            printlnError(breaches + " pending request(s) would exceed their team's daily absence limit.");
+    }
+    void whoIsOut() {
+        String from = promptValidDate("From");
+        System.out.print("To [YYYY-MM-DD, blank = same day]: ");
+        String to = sc.nextLine().trim();
+        if (to.isEmpty()) to = from;
+        else if (!InputValidator.isValidDate(to)) { printlnError("Invalid date!"); return; }
+        int a = (int) LocalDate.parse(from).toEpochDay(), b = (int) LocalDate.parse(to).toEpochDay();
+        if (b < a) { printlnError("End before Start!"); return; }
+        List<LeaveRequest> out = absences.outBetween(a, b);
+        if (out.isEmpty()) { printlnInfo("Nobody is out between " + from + " and " + to + "."); return; }
+        String[] headers = {"EmpID", "Name", "ReqID", "Start", "End", "Type", "Status"};
+        int[] widths = {6, 18, 6, 10, 10, 8, 8};
+        Set<Integer> people = new HashSet<>();
+        for (LeaveRequest r : out) people.add(r.getEmpId());
+        new TableFormatter(headers, widths).browse(out.size(), i -> {
+            LeaveRequest r = out.get(i);
+            User u = getUserById(r.getEmpId());
+            return new String[]{
+                    "" + r.getEmpId(), u == null ? "?" : u.getName(), "" + r.getReqId(), r.getStart(), r.getEnd(), r.getType(), r.getStatus()
+            };
+        });
+        printlnInfo(people.size() + " employee(s) out (" + out.size() + " approved/pending requests).");
+    }
+    void bulkDecide() {
+        LeaveFilter f = new LeaveFilter();
+        try {
+            System.out.print("EmpID [blank = any]: ");
+            String in = sc.nextLine().trim();
+            if (!in.isEmpty()) {
+                if (!InputValidator.isInt(in)) { printlnError("Not a valid number!"); return; }
+                f.empId = Integer.parseInt(in);
+            }
+            System.out.print("Team [blank = any]: ");
+            f.team = teamName(sc.nextLine());
+            System.out.print("Type (Sick/Casual/WFH/Vacation/Others) [blank = any]: ");
+            in = sc.nextLine().trim();
+            if (!in.isEmpty()) f.type = LeaveFilter.type(in);
+            System.out.print("From [YYYY-MM-DD, blank = any]: ");
+            in = sc.nextLine().trim();
+            if (!in.isEmpty()) f.from = LocalDate.parse(in);
+            System.out.print("To [YYYY-MM-DD, blank = any]: ");
+            in = sc.nextLine().trim();
+            if (!in.isEmpty()) f.to = LocalDate.parse(in);
+            System.out.print("Max days [blank = any]: ");
+            in = sc.nextLine().trim();
+            if (!in.isEmpty()) {
+                if (!InputValidator.isInt(in)) { printlnError("Not a valid number!"); return; }
+                f.maxDays = Integer.parseInt(in);
+            }
+        } catch (IllegalArgumentException | java.time.DateTimeException e) {
+            printlnError(e.getMessage());
+            return;
         }
-        TableFormatter.printTableFooter(widths);
+        int n = pendingMatching(f).size();
+        if (n == 0) { printlnInfo("No pending requests match."); return; }
+        System.out.print(n + " pending request(s) match. Approve (A), Reject (R) or cancel (blank)? ");
+        String ch = sc.nextLine().trim().toUpperCase();
+        if (!ch.equals("A") && !ch.equals("R")) { printlnInfo("Nothing changed."); return; }
+        BulkResult res = decideMatching(f, ch.equals("A"));
+        if (ch.equals("A")) printlnSuccess(res.approved + " of " + res.matched + " approved in " + res.millis + " ms.");
+        else printlnSuccess(res.rejected + " of " + res.matched + " rejected in " + res.millis + " ms, " + res.daysRestored + " day(s) restored.");
+        if (!res.overCapacity.isEmpty())
+            printlnError(res.overCapacity.size() + " left pending, over their team's daily absence limit: "
+                    + res.overCapacity.subList(0, Math.min(20, res.overCapacity.size())) + (res.overCapacity.size() > 20 ? " …" : ""));
     }
     void approveReject() {
         viewAllTable();
         int rid = promptInt("Enter RequestID to Approve/Reject");
-        for (LeaveRequest r : requests)
-            if (r.getReqId() == rid && r.getStatus().equals("PENDING")) {
-                System.out.print("Approve (A) or Reject (R)? ");
-                String ch = sc.nextLine().toUpperCase();
-                if (ch.equals("A")) {
-                    r.setStatus("APPROVED");
-                    printlnSuccess("Leave approved.");
-                    return;
-                } else if (ch.equals("R")) {
-                    r.setStatus("REJECTED");
-                    User u = getUserById(r.getEmpId());
-                    if (u != null) u.setLeaveBalance(u.getLeaveBalance() + r.getRequestedDays());
-                    printlnSuccess("Rejected, leave restored.");
-                    return;
+        LeaveRequest r = requestIndex.byReqId(rid);
+        if (r != null && r.isPending()) {
+            System.out.print("Approve (A) or Reject (R)? ");
+            String ch = sc.nextLine().toUpperCase();
+            if (ch.equals("A") || ch.equals("R")) {
+                try {
+                    decideLeave(r, ch.equals("A"));
+                    printlnSuccess(ch.equals("A") ? "Leave approved." : "Rejected, leave restored.");
+                } catch (LeaveException e) {
+                    printlnError(e.getMessage());
                 }
+                return;
             }
+        }
         printlnInfo("No such pending request.");
     }
 
     void viewTeamSummary() {
         String[] headers = {"EmpID", "Name", "Leaves Used", "Leave Balance"};
         int[] widths = {6, 20, 12, 12};
-        TableFormatter.printTableHeader(headers, widths);
-        for (User u : users)
-            if (u instanceof Employee)
-                TableFormatter.printRow(new String[]{
-                        "" + u.getEmpId(), u.getName(), "" + (u.getTotalLeavesAllowed() - u.getLeaveBalance()), "" + u.getLeaveBalance()
-                }, widths);
-        TableFormatter.printTableFooter(widths);
+        List<Employee> team = new ArrayList<>(users.ofRole(Employee.class));
+        new TableFormatter(headers, widths).browse(team.size(), i -> {
+            User u = team.get(i);
+            return new String[]{"" + u.getEmpId(), u.getName(), "" + (u.getTotalLeavesAllowed() - u.getLeaveBalance()), "" + u.getLeaveBalance()};
+        });
     }
 
     // Manager download: actual file writing for Leave Requests
@@ -690,13 +4309,11 @@ public class SmartLeaveSystem {
         System.out.print("Choose: ");
         String ch = sc.nextLine().trim();
         if (ch.equals("1")) {
-            String csv = generateLeaveCSVString(requests);
             String fname = "leave_requests_" + timestampForFile() + ".csv";
-            saveToFile(fname, csv);
+            exportToFile(fname, Metrics.Op.EXPORT_REQUESTS_CSV, out -> writeLeaveCSV(out, requests.values()));
         } else if (ch.equals("2")) {
-            String txt = generateLeaveTXTString(requests);
             String fname = "leave_requests_" + timestampForFile() + ".txt";
-            saveToFile(fname, txt);
+            exportToFile(fname, Metrics.Op.EXPORT_REQUESTS_TXT, out -> writeLeaveTXT(out, requests.values()));
         } else viewAllTable();
     }
 
@@ -709,34 +4326,28 @@ public class SmartLeaveSystem {
         System.out.print("Choose: ");
         String ch = sc.nextLine().trim();
         if (ch.equals("1")) {
-            String csv = generateTeamStatsCSVString();
             String fname = "team_stats_" + timestampForFile() + ".csv";
-            saveToFile(fname, csv);
+            exportToFile(fname, Metrics.Op.EXPORT_TEAM_STATS_CSV, out -> writeTeamStatsCSV(out));
         } else if (ch.equals("2")) {
-            String txt = generateTeamStatsTXTString();
             String fname = "team_stats_" + timestampForFile() + ".txt";
-            saveToFile(fname, txt);
+            exportToFile(fname, Metrics.Op.EXPORT_TEAM_STATS_TXT, out -> writeTeamStatsTXT(out));
         } else viewTeamSummary();
     }
 
     void analyticsDashboard() {
         System.out.println("--- Team Analytics ---");
-        int total = 0, maxDays = 0;
-        User topUser = null;
-        for (User u : users) {
-            int taken = u.getTotalLeavesAllowed() - u.getLeaveBalance();
-            total += taken;
-            if (taken > maxDays) {
-                maxDays = taken;
-                topUser = u;
-            }
-        }
+        long total = stats.totalLeavesTaken();
+        String top = read(() -> {
+            Leaderboard taken = boards.board(Leaderboards.TAKEN, null);
+            if (taken.size() == 0) return null;
+            User u = taken.get(0);
+            int days = taken.score(u);
+            return days > 0 ? u.getName() + " (" + days + " leaves)" : null;
+        });
         System.out.println("Total leaves by team: " + total);
-        if (topUser != null)
-            System.out.println("Top absentee: " + topUser.getName() + " (" + maxDays + " leaves)");
-        int pending = 0;
-        for (LeaveRequest r : requests) if (r.getStatus().equalsIgnoreCase("PENDING")) pending++;
-        System.out.println("Current pending leave requests: " + pending);
+        if (top != null)
+            System.out.println("Top absentee: " + top);
+        System.out.println("Current pending leave requests: " + stats.count("PENDING"));
     }
 
     // ========== ADMIN MENU ==========
@@ -751,7 +4362,12 @@ public class SmartLeaveSystem {
             System.out.println("5. Announce Policy Update");
             System.out.println("6. Export HR Feedback");
             System.out.println("7. Blockchain/Audit Features");
-            System.out.println("8. Logout");
+            System.out.println("8. Verify Dashboard Counters");
+            System.out.println("9. Bulk Import (CSV)");
+            System.out.println("10. Run Org-wide Leave Forecast");
+            System.out.println("11. Burnout Risk Scan (top N per team)");
+            System.out.println("12. Teams & Daily Absence Limits");
+            System.out.println("13. Logout");
             System.out.print("Choose: ");
             String c = sc.nextLine().trim();
             switch (c) {
@@ -762,39 +4378,338 @@ public class SmartLeaveSystem {
                 case "5": policyUpdate(); break;
                 case "6": exportHRFeedback(); break;
                 case "7": blockchainFeatureMenu(); break;
-                case "8": return;
+                case "8": verifyCounters(); break;
+                case "9": bulkImport(); break;
+                case "10":
+                    try { predictAll(forecastFile()); }
+                    catch (IOException e) { printlnError("Forecast not written: " + e.getMessage()); }
+                    break;
+                case "11":
+                    System.out.print("Top N per team [" + STRESS_TOP_DEFAULT + "]: ");
+                    String n = sc.nextLine().trim();
+                    stressScanTables(InputValidator.isInt(n) && Integer.parseInt(n) > 0 ? Integer.parseInt(n) : STRESS_TOP_DEFAULT, true);
+                    break;
+                case "12": teamsMenu(); break;
+                case "13": return;
                 default: printlnError("Invalid."); break;
             }
         }
     }
+    void teamsMenu() {
+        while (true) {
+            printlnInfo("Teams (default limit: " + TEAM_DAILY_CAPACITY + " out per day; users in no team have no limit)");
+            System.out.println("1. List Teams");
+            System.out.println("2. Assign User to Team");
+            System.out.println("3. Set Team Daily Limit");
+            System.out.println("4. Back");
+            System.out.print("Choose: ");
+            try {
+                switch (sc.nextLine().trim()) {
+                    case "1": listTeams(); break;
+                    case "2": {
+                        User u = getUserById(promptInt("EmpID"));
+                        if (u == null) { printlnError("No such user."); break; }
+                        System.out.print("Team for " + u.getName() + " [now: " + (u.getTeam() == null ? "none" : u.getTeam()) + ", blank = none]: ");
+                        String team = teamName(sc.nextLine());
+                        commitTeam(u, team);
+                        printlnSuccess(u.getName() + (team == null ? " is in no team now." : " moved to " + team + "."));
+                        break;
+                    }
+                    case "3": {
+                        System.out.print("Team: ");
+                        String team = teamName(sc.nextLine());
+                        if (team == null) { printlnError("Team name required."); break; }
+                        int limit = promptInt("Most members out per day (0 = default " + TEAM_DAILY_CAPACITY + ")");
+                        commitTeamLimit(team, limit);
+                        printlnSuccess(team + ": " + teamLimit(team) + " out per day.");
+                        break;
+                    }
+                    case "4": return;
+                    default: printlnError("Invalid."); break;
+                }
+            } catch (IllegalArgumentException e) {
+                printlnError(e.getMessage());
+            }
+        }
+    }
+    void listTeams() {
+        Map<String, int[]> members = new TreeMap<>();
+        int none = read(() -> {
+            int n = 0;
+            for (User u : users) {
+                if (u.getTeam() == null) n++;
+                else members.computeIfAbsent(u.getTeam(), k -> new int[1])[0]++;
+            }
+            for (String t : teamLimits.keySet()) members.computeIfAbsent(t, k -> new int[1]);
+            return n;
+        });
+        TableFormatter table = new TableFormatter(new String[]{"Team", "Members", "Daily limit"}, new int[]{24, 7, 11});
+        table.header();
+        for (Map.Entry<String, int[]> e : members.entrySet())
+            table.row(e.getKey(), "" + e.getValue()[0], teamLimit(e.getKey()) + (teamLimits.containsKey(e.getKey()) ? "" : " (default)"));
+        table.footer().flush();
+        printlnInfo(none + " user(s) in no team.");
+    }
 
     int countRole(Class<?> clazz) {
-        int cnt = 0;
-        for (User u : users) if (clazz.isInstance(u)) cnt++;
-        return cnt;
+        return users.count(clazz);
     }
     void orgStatsTable() {
         System.out.println("--- Org-wide Leave Stats ---");
         System.out.println("Employees: " + countRole(Employee.class));
-        int totalLeaves = 0;
-        for (User u : users)
-            if (u instanceof Employee) totalLeaves += (u.getTotalLeavesAllowed() - u.getLeaveBalance());
-        System.out.println("Leaves taken this year: " + totalLeaves);
-        int reqs = requests.size();
-        System.out.println("Total requests this year: " + reqs);
-        int approved = 0, rejected = 0, pending = 0;
-        for (LeaveRequest r : requests) {
-            if (r.getStatus().equals("APPROVED")) approved++;
-            else if (r.getStatus().equals("REJECTED")) rejected++;
-            else if (r.getStatus().equals("PENDING")) pending++;
-        }
-        System.out.println("Approved: " + approved + ", Rejected: " + rejected + ", Pending: " + pending);
+        System.out.println("Leaves taken this year: " + stats.employeeLeavesTaken());
+        System.out.println("Total requests this year: " + requests.size());
+        System.out.println("Approved: " + stats.count("APPROVED") + ", Rejected: " + stats.count("REJECTED") + ", Pending: " + stats.count("PENDING"));
+    }
+    boolean verifyCounters() {
+        long t0 = System.nanoTime();
+        List<String> diffs = stats.verify(users, requests.values());
+        Metrics.record(Metrics.Op.VERIFY_COUNTERS, t0, diffs.isEmpty());
+        if (diffs.isEmpty()) printlnSuccess("Dashboard counters match a full recount.");
+        else {
+            printlnError(diffs.size() + " counter(s) out of step:");
+            for (String d : diffs) System.out.println("  " + d);
+        }
+        return diffs.isEmpty();
     }
+    static final String HOLIDAYS_FILE = "holidays.txt";
+
+    // One YYYY-MM-DD per line next to the store (# comments allowed); weekends are never working days.
+    Set<LocalDate> loadHolidays() {
+        Path file = snapshotFile != null ? snapshotFile.resolveSibling(HOLIDAYS_FILE) : Paths.get(HOLIDAYS_FILE);
+        Set<LocalDate> days = new HashSet<>();
+        if (!Files.exists(file)) return days;
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String d = line.replaceAll("#.*", "").trim();
+                if (d.isEmpty()) continue;
+                if (InputValidator.isValidDate(d)) days.add(LocalDate.parse(d));
+                else printlnError("Ignoring holiday '" + d + "' in " + file);
+            }
+        } catch (IOException e) {
+            printlnError("Ignoring " + file + ": " + e.getMessage());
+        }
+        return days;
+    }
+    // "2025", "2025-03" or "2025-Q2" as {first day, last day}; null if unreadable.
+    static LocalDate[] parsePeriod(String s) {
+        try {
+            if (s.matches("\\d{4}")) {
+                int y = Integer.parseInt(s);
+                return new LocalDate[]{LocalDate.of(y, 1, 1), LocalDate.of(y, 12, 31)};
+            }
+            if (s.matches("\\d{4}-\\d{2}")) {
+                LocalDate first = LocalDate.parse(s + "-01");
+                return new LocalDate[]{first, first.withDayOfMonth(first.lengthOfMonth())};
+            }
+            if (s.matches("\\d{4}-[Qq][1-4]")) {
+                LocalDate first = LocalDate.of(Integer.parseInt(s.substring(0, 4)), 3 * (s.charAt(6) - '1') + 1, 1);
+                LocalDate last = first.plusMonths(2);
+                return new LocalDate[]{first, last.withDayOfMonth(last.lengthOfMonth())};
+            }
+        } catch (RuntimeException e) {
+            return null;
+        }
+        return null;
+    }
+    // Working days up to today in the chosen month, quarter or year, from the attendance bitmaps.
     void attendanceSummary() {
         System.out.println("--- Attendance Summary ---");
-        for (User u : users)
-            if (u instanceof Employee)
-                System.out.println(u.getName() + ": " + (365 - (u.getTotalLeavesAllowed() - u.getLeaveBalance())) + " days attended this year.");
+        LocalDate today = LocalDate.now();
+        System.out.print("Period (YYYY, YYYY-MM or YYYY-Q1..Q4) [blank = " + today.getYear() + "]: ");
+        String in = sc.nextLine().trim();
+        LocalDate[] period = parsePeriod(in.isEmpty() ? "" + today.getYear() : in);
+        if (period == null) { printlnError("Use e.g. 2025, 2025-03 or 2025-Q2."); return; }
+        LocalDate from = period[0], to = period[1].isAfter(today) ? today : period[1];
+        if (from.isAfter(to)) { printlnInfo("That period has not started yet."); return; }
+        List<String[]> rows = new ArrayList<>();
+        String totals = read(() -> {
+            int working = attendance.workingDays(from, to);
+            int[] leaveByPos = attendance.leaveDays(from, to);
+            long present = 0;
+            BitSet employees = new BitSet();
+            for (User u : users.ofRole(Employee.class)) {
+                employees.set(users.position(u.getEmpId()));
+                int leave = leaveByPos[users.position(u.getEmpId())];
+                present += working - leave;
+                rows.add(new String[]{"" + u.getEmpId(), u.getName(), "" + working, "" + leave, "" + (working - leave),
+                        working == 0 ? "-" : String.format("%.1f%%", 100.0 * (working - leave) / working)});
+            }
+            return working + " working day(s) from " + from + " to " + to + "; " + present + " employee-days present, "
+                    + attendance.presentAmong(from, to, employees).cardinality() + " of " + employees.cardinality() + " employees never on leave.";
+        });
+        String[] headers = {"EmpID", "Name", "Working", "Leave", "Present", "Rate"};
+        new TableFormatter(headers, new int[]{7, 20, 7, 5, 7, 6}).browse(rows.size(), rows::get);
+        printlnInfo(totals);
+        System.out.print("Who is present on (YYYY-MM-DD) [blank = skip]: ");
+        String day = sc.nextLine().trim();
+        if (day.isEmpty()) return;
+        if (!InputValidator.isValidDate(day)) { printlnError("Invalid date!"); return; }
+        LocalDate d = LocalDate.parse(day);
+        System.out.println(read(() -> {
+            if (attendance.workingDays(d, d) == 0) return d + " is a weekend or holiday.";
+            StringBuilder sb = new StringBuilder("Present on " + d + ": " + attendance.presentOn(d, null).cardinality()
+                    + " of " + attendance.members(null).cardinality());
+            for (String team : attendance.teams())
+                sb.append("\n  ").append(team).append(": ").append(attendance.presentOn(d, team).cardinality())
+                        .append(" of ").append(attendance.members(team).cardinality());
+            return sb.toString();
+        }));
+    }
+    // ---------- Forecasts ----------
+    Path forecastFile() {
+        return snapshotFile != null ? snapshotFile.resolveSibling(FORECAST_FILE) : Paths.get(FORECAST_FILE);
+    }
+    // The nightly forecast if this employee is in it, else one computed now from the live counters.
+    void showForecast(Employee emp) {
+        long t0 = System.nanoTime();
+        LeavePatternPredictor.Forecast f = null;
+        try { f = ForecastFile.lookup(forecastFile(), emp.getEmpId()); }
+        catch (IOException e) { printlnError("Ignoring forecast file: " + e.getMessage()); }
+        if (f == null) f = read(() -> LeavePatternPredictor.forecast(emp.getEmpId(), profiles.of(emp.getEmpId()), LocalDate.now()));
+        Metrics.record(Metrics.Op.PREDICT_PATTERN, t0);
+        System.out.println(f.describe());
+    }
+    // Forecasts every employee in parallel on the common fork-join pool and rewrites the file.
+    // Only the counter reads hold the read lock; the file is written after it is released.
+    void predictAll(Path file) throws IOException {
+        long t0 = System.nanoTime();
+        LocalDate asOf = LocalDate.now();
+        LeavePatternPredictor.Forecast[] out = read(() -> {
+            List<User> list = new ArrayList<>(countRole(Employee.class));
+            for (User u : users.ofRole(Employee.class)) list.add(u);
+            User[] emps = list.toArray(new User[0]);
+            int[][] counters = new int[emps.length][];
+            for (int i = 0; i < emps.length; i++) counters[i] = profiles.of(emps[i].getEmpId());
+            LeavePatternPredictor.Forecast[] res = new LeavePatternPredictor.Forecast[emps.length];
+            ForkJoinPool.commonPool().invoke(new LeavePatternPredictor.ForecastTask(emps, counters, res, asOf, 0, emps.length));
+            return res;
+        });
+        ForecastFile.write(file, out, asOf);
+        Metrics.record(Metrics.Op.PREDICT_ALL, t0);
+        int[] byType = new int[LeaveProfiles.TYPES];
+        for (LeavePatternPredictor.Forecast f : out) if (f.nextType >= 0) byType[f.nextType]++;
+        StringBuilder mix = new StringBuilder();
+        for (int t = 0; t < byType.length; t++)
+            if (byType[t] > 0) mix.append(mix.length() == 0 ? "" : ", ").append(LeaveRequest.TYPE_NAMES[t]).append(' ').append(byType[t]);
+        printlnSuccess("Forecast for " + out.length + " employees written to " + file + " in " + (System.nanoTime() - t0) / 1_000_000 + " ms on "
+                + ForkJoinPool.getCommonPoolParallelism() + " worker(s)" + (mix.length() == 0 ? "." : "; next leave: " + mix + "."));
+    }
+
+    // ---------- Burnout scan ----------
+    static final int STRESS_TOP_DEFAULT = 50;
+    AIStressDetector.Risk assessStress(Employee emp) {
+        long t0 = System.nanoTime();
+        AIStressDetector.Risk r = read(() -> AIStressDetector.assess(emp, requestIndex.forEmployee(emp.getEmpId()), (int) LocalDate.now().toEpochDay()));
+        Metrics.record(Metrics.Op.PREDICT_STRESS, t0);
+        return r;
+    }
+    // The k most at-risk users of each team, highest score first, scored in parallel on the common
+    // fork-join pool under the read lock. Teams by name, then users in no team under the null key.
+    Map<String, List<AIStressDetector.Risk>> stressScan(int k) {
+        if (k <= 0) throw new IllegalArgumentException("top must be at least 1");
+        long t0 = System.nanoTime();
+        int today = (int) LocalDate.now().toEpochDay();
+        Map<String, PriorityQueue<AIStressDetector.Risk>> heaps = read(() -> {
+            User[] all = new User[users.size()];
+            int i = 0;
+            for (User u : users) all[i++] = u;
+            return ForkJoinPool.commonPool().invoke(new AIStressDetector.ScanTask(all, requestIndex::forEmployee, k, today, 0, all.length));
+        });
+        Map<String, List<AIStressDetector.Risk>> top = new LinkedHashMap<>();
+        List<String> teams = new ArrayList<>(heaps.keySet());
+        teams.sort(Comparator.nullsLast(Comparator.naturalOrder()));
+        for (String team : teams) {
+            List<AIStressDetector.Risk> list = new ArrayList<>(heaps.get(team));
+            list.sort(AIStressDetector.LEAST_AT_RISK.reversed());
+            top.put(team, list);
+        }
+        Metrics.record(Metrics.Op.STRESS_SCAN, t0);
+        return top;
+    }
+    // paged = browse 20 rows at a time (console); otherwise print whole tables (batch mode).
+    void stressScanTables(int k, boolean paged) {
+        long t0 = System.nanoTime();
+        Map<String, List<AIStressDetector.Risk>> top = stressScan(k);
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+        Map<String, Integer> members = read(() -> {
+            Map<String, Integer> n = new HashMap<>();
+            for (User u : users) n.merge(u.getTeam(), 1, Integer::sum);
+            return n;
+        });
+        String[] headers = {"Rank", "EmpID", "Name", "Score", "Level", "Days w/o leave", "Sick cluster", "Rejected", "Taken"};
+        int[] widths = {4, 7, 20, 5, 8, 14, 12, 8, 5};
+        for (Map.Entry<String, List<AIStressDetector.Risk>> e : top.entrySet()) {
+            List<AIStressDetector.Risk> list = e.getValue();
+            printlnInfo((e.getKey() == null ? "No team" : "Team " + e.getKey()) + ": top " + list.size() + " of "
+                    + members.getOrDefault(e.getKey(), list.size()) + " by burnout risk");
+            TableFormatter.RowSource rows = i -> {
+                AIStressDetector.Risk r = list.get(i);
+                return new String[]{"" + (i + 1), "" + r.user.getEmpId(), r.user.getName(), "" + r.score, r.level(),
+                        "" + r.daysSinceLeave, "" + r.sickCluster, "" + r.rejected, "" + r.taken};
+            };
+            TableFormatter table = new TableFormatter(headers, widths);
+            if (paged) table.browse(list.size(), rows);
+            else {
+                table.header();
+                for (int i = 0; i < list.size(); i++) table.row(rows.row(i));
+                table.footer().flush();
+            }
+        }
+        printlnSuccess("Scanned " + users.size() + " users in " + ms + " ms on " + ForkJoinPool.getCommonPoolParallelism() + " worker(s).");
+    }
+
+    void bulkImport() {
+        System.out.print("Users CSV (" + BulkImporter.USER_HEADER + "), blank to skip: ");
+        String usersPath = sc.nextLine().trim();
+        System.out.print("Leave CSV (" + BulkImporter.LEAVE_HEADER + "), blank to skip: ");
+        String leavePath = sc.nextLine().trim();
+        BulkImporter importer = new BulkImporter(this);
+        try {
+            if (!usersPath.isEmpty()) {
+                BulkImporter.Report rep = importer.importUsers(Paths.get(usersPath));
+                printImportReport(rep);
+            }
+            if (!leavePath.isEmpty()) printImportReport(importer.importRequests(Paths.get(leavePath)));
+        } catch (IOException e) {
+            printlnError("Import stopped: " + e.getMessage());
+        }
+        if (journal != null) {
+            try { snapshot(); }
+            catch (IOException e) { printlnError("Snapshot after import failed: " + e.getMessage()); }
+        }
+    }
+    void printImportReport(BulkImporter.Report rep) {
+        long rate = rep.millis == 0 ? rep.rows : rep.rows * 1000 / rep.millis;
+        printlnSuccess(rep.file + ": " + rep.imported + " of " + rep.rows + " rows imported in " + rep.millis + " ms (" + rate + " rows/s)");
+        if (!rep.passwords.isEmpty()) savePasswords(rep.passwords);
+        if (rep.rejected == 0) return;
+        printlnError(rep.rejected + " row(s) rejected, first few:");
+        for (int i = 0; i < Math.min(10, rep.errors.size()); i++) System.out.println("  " + rep.errors.get(i));
+        String fname = "import_errors_" + timestampForFile() + ".txt";
+        exportToFile(fname, null, out -> {
+            for (String err : rep.errors) { out.append(err).append('\n'); out.endRecord(); }
+            if (rep.rejected > rep.errors.size())
+                out.append("... ").append(rep.rejected - rep.errors.size()).append(" more not listed\n");
+        });
+    }
+    // One-time passwords go to an owner-only file, never to the console or logs. Their users must
+    // pick a new password at first login.
+    private static void savePasswords(List<String> lines) {
+        String fname = "import_passwords_" + timestampForFile() + ".csv";
+        try {
+            Path file = Paths.get(fname);
+            Files.deleteIfExists(file);
+            try { Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"))); }
+            catch (UnsupportedOperationException e) { Files.createFile(file); }
+        } catch (IOException e) {
+            printlnError("Cannot create " + fname + ": " + e.getMessage());
+            return;
+        }
+        if (exportToFile(fname, null, out -> {
+            out.append("EmpID,Email,OneTimePassword\n");
+            for (String line : lines) { out.append(line).append('\n'); out.endRecord(); }
+        })) printlnInfo("Hand out the one-time passwords in " + fname + ", then delete it; they must be changed at first login.");
     }
     void hrFeedbackTable() {
         System.out.println("--- Recent HR Feedback ---");
@@ -803,11 +4718,43 @@ public class SmartLeaveSystem {
             System.out.println(fb.getEmpName() + ": " + fb.getMessage());
     }
 
+    static final int AWARD_BOARD_SIZE = 10;
+
+    String badgeRank(User u) {
+        return read(() -> {
+            int org = boards.board(Leaderboards.BADGES, null).rank(u.getEmpId());
+            if (org == 0) return "";
+            if (u.getTeam() == null) return " (#" + org + " org-wide)";
+            Leaderboard team = boards.board(Leaderboards.BADGES, u.getTeam());
+            return " (#" + team.rank(u.getEmpId()) + " of " + team.size() + " in " + u.getTeam() + ", #" + org + " org-wide)";
+        });
+    }
+
+    // Ties rank together and list by EmpID, so the winner is the lowest EmpID among the top scorers.
     void awardBoard() {
         if (users.isEmpty()) { printlnInfo("No users yet."); return; }
-        User top = users.get(0);
-        for (User u : users) if (u.getBadges() > top.getBadges()) top = u;
-        System.out.println("🏆 Employee of the Year: " + top.getName() + " (Badges: " + top.getBadges() + ")");
+        List<String[]> rows = new ArrayList<>();
+        List<String> leaders = new ArrayList<>();
+        String winner = read(() -> {
+            Leaderboard org = boards.board(Leaderboards.BADGES, null);
+            for (User u : org.top(AWARD_BOARD_SIZE))
+                rows.add(new String[]{"" + org.rank(u.getEmpId()), "" + u.getEmpId(), u.getName(),
+                        u.getTeam() == null ? "-" : u.getTeam(), "" + u.getBadges()});
+            for (String team : boards.teams()) {
+                User lead = boards.board(Leaderboards.BADGES, team).get(0);
+                leaders.add(team + ": " + lead.getName() + " (Badges: " + lead.getBadges() + ")");
+            }
+            User top = org.get(0);
+            int tied = org.countAbove(top.getBadges() - 1);
+            return top.getName() + " (Badges: " + top.getBadges() + ")"
+                    + (tied > 1 ? " - tied with " + (tied - 1) + " other(s), lowest EmpID wins" : "");
+        });
+        System.out.println("🏆 Employee of the Year: " + winner);
+        TableFormatter table = new TableFormatter(new String[]{"Rank", "EmpID", "Name", "Team", "Badges"}, new int[]{4, 7, 20, 16, 6});
+        table.header();
+        for (String[] r : rows) table.row(r);
+        table.footer().flush();
+        for (String l : leaders) System.out.println("Top " + l);
     }
     void policyUpdate() {
         System.out.println("Enter policy update message: ");
@@ -822,13 +4769,11 @@ public class SmartLeaveSystem {
         System.out.print("Choose: ");
         String ch = sc.nextLine().trim();
         if (ch.equals("1")) {
-            String csv = generateFeedbackCSVString();
             String fname = "hr_feedback_" + timestampForFile() + ".csv";
-            saveToFile(fname, csv);
+            exportToFile(fname, Metrics.Op.EXPORT_FEEDBACK_CSV, out -> writeFeedbackCSV(out));
         } else if (ch.equals("2")) {
-            String txt = generateFeedbackTXTString();
             String fname = "hr_feedback_" + timestampForFile() + ".txt";
-            saveToFile(fname, txt);
+            exportToFile(fname, Metrics.Op.EXPORT_FEEDBACK_TXT, out -> writeFeedbackTXT(out));
         } else hrFeedbackTable();
     }
 
@@ -840,21 +4785,58 @@ public class SmartLeaveSystem {
             System.out.println("2. Verify Hashes/Integrity");
             System.out.println("3. Audit Trail");
             System.out.println("4. Export Audit Trail (CSV/TXT)");
-            System.out.println("5. Back");
+            System.out.println("5. Full Re-verification (from genesis)");
+            System.out.println("6. Export Inclusion Proof (ReqID)");
+            System.out.println("7. Verify Inclusion Proof File");
+            System.out.println("8. Back");
             System.out.print("Choose: ");
             String ch = sc.nextLine().trim();
-            switch (ch) {
-                case "1": BlockchainSimulator.printLeaveChain(requests); break;
-                case "2": BlockchainSimulator.verifyIntegrity(requests); break;
-                case "3": BlockchainSimulator.auditTrail(requests); break;
-                case "4":
-                    exportBlockchainAudit();
-                    break;
-                case "5": return;
-                default: printlnError("Invalid."); break;
+            if (ch.equals("8")) return;
+            if (chain == null) { printlnError("Audit chain is not open."); continue; }
+            try {
+                switch (ch) {
+                    case "1": BlockchainSimulator.printLeaveChain(chain); break;
+                    case "2": BlockchainSimulator.verifyIntegrity(chain, false); break;
+                    case "3": BlockchainSimulator.auditTrail(chain); break;
+                    case "4":
+                        exportBlockchainAudit();
+                        break;
+                    case "5": BlockchainSimulator.verifyIntegrity(chain, true); break;
+                    case "6": exportInclusionProof(); break;
+                    case "7": verifyInclusionProof(); break;
+                    default: printlnError("Invalid."); break;
+                }
+            } catch (IOException e) {
+                printlnError("Audit chain error: " + e.getMessage());
             }
         }
     }
+    void exportInclusionProof() throws IOException {
+        System.out.print("ReqID: ");
+        int reqId;
+        try { reqId = Integer.parseInt(sc.nextLine().trim()); }
+        catch (NumberFormatException e) { printlnError("Invalid ReqID."); return; }
+        if (chain.blocksOf(reqId) == 0) { printlnError("No audit blocks for ReqID " + reqId + "."); return; }
+        String fname = "audit_proof_" + reqId + "_" + timestampForFile() + ".txt";
+        exportToFile(fname, Metrics.Op.EXPORT_PROOF, out -> chain.writeProof(out, reqId));
+    }
+    void verifyInclusionProof() throws IOException {
+        System.out.print("Proof file: ");
+        Path file = Paths.get(sc.nextLine().trim());
+        AuditProof proof;
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            proof = AuditProof.parse(in);
+        } catch (IOException e) {
+            printlnError("Cannot read proof " + file + ": " + e.getMessage());
+            return;
+        }
+        String bad = proof.verify();
+        if (bad != null) { printlnError("Proof INVALID: " + bad); return; }
+        printlnSuccess("Proof valid: " + proof.seqs.size() + " block(s) of ReqID " + proof.reqId + " are included in the tree of " + proof.treeSize + " blocks.");
+        if (proof.treeSize > chain.size()) printlnError("This chain has only " + chain.size() + " blocks; the proof is for a different or truncated chain.");
+        else if (!Arrays.equals(chain.merkleRoot(proof.treeSize), proof.root)) printlnError("Root does NOT match this audit chain at size " + proof.treeSize + ".");
+        else printlnSuccess("Root matches this audit chain at size " + proof.treeSize + ".");
+    }
     void exportBlockchainAudit() {
         System.out.println("Export Audit Trail:");
         System.out.println("1. CSV");
@@ -862,20 +4844,671 @@ public class SmartLeaveSystem {
         System.out.print("Choose: ");
         String ch = sc.nextLine().trim();
         if (ch.equals("1")) {
-            String csv = generateBlockchainCSVString();
             String fname = "blockchain_audit_" + timestampForFile() + ".csv";
-            saveToFile(fname, csv);
+            exportToFile(fname, Metrics.Op.EXPORT_AUDIT_CSV, out -> writeBlockchainCSV(out));
         } else if (ch.equals("2")) {
-            String txt = generateBlockchainTXTString();
             String fname = "blockchain_audit_" + timestampForFile() + ".txt";
-            saveToFile(fname, txt);
+            exportToFile(fname, Metrics.Op.EXPORT_AUDIT_TXT, out -> writeBlockchainTXT(out));
         } else printlnInfo("Cancelled.");
     }
 
+    // ---------- Leave operations ----------
+    // The checked operations behind both the console menus and the HTTP API. They validate,
+    // then commit; a refusal is a LeaveException whose message is shown to the user as is.
+    // Locking: an employee's check-then-commit runs under that employee's lock stripe, so a
+    // balance or overlap check cannot go stale before its commit; approvals also hold the team's
+    // stripe because capacity is shared across the team. The store lock only covers applying a
+    // commit that is already durable (readers share it), not the checks, the journal write or the fsync.
+    static class LeaveException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        LeaveException(String message) { super(message); }
+    }
+
+    // Fixed set of locks picked by key hash; unrelated keys only contend when they share a stripe.
+    static class LockStripes {
+        private final ReentrantLock[] locks;
+        LockStripes(int stripes) {
+            locks = new ReentrantLock[Integer.highestOneBit(stripes - 1) << 1];
+            for (int i = 0; i < locks.length; i++) locks[i] = new ReentrantLock();
+        }
+        ReentrantLock forKey(int key) { return locks[(key * 0x9E3779B9 >>> 16) & (locks.length - 1)]; }
+        void lockAll() { for (ReentrantLock l : locks) l.lock(); }
+        void unlockAll() { for (int i = locks.length - 1; i >= 0; i--) locks[i].unlock(); }
+    }
+
+    // replacing = the caller's pending request being edited: its days are handed back first and
+    // its dates may be reused.
+    LeaveRequest submitLeave(Employee emp, LocalDate start, LocalDate end, String type, String reason, LeaveRequest replacing) {
+        long t0 = System.nanoTime();
+        boolean ok = false;
+        int days = (int) (end.toEpochDay() - start.toEpochDay()) + 1;
+        ReentrantLock lock = employeeLocks.forKey(emp.getEmpId());
+        lock.lock();
+        try {
+            if (days < 1) throw new LeaveException("End before Start!");
+            LeaveRequest clash = read(() -> {
+                if (replacing != null) ownPending(emp, replacing);
+                return absences.overlap(emp.getEmpId(), (int) start.toEpochDay(), (int) end.toEpochDay(), replacing);
+            });
+            if (clash != null)
+                throw new LeaveException("Overlaps your request #" + clash.getReqId() + " (" + clash.getStart() + " to " + clash.getEnd() + ", " + clash.getStatus() + ").");
+            int credit = replacing == null ? 0 : replacing.getRequestedDays();
+            if (emp.getLeaveBalance() + credit < days) throw new LeaveException("Leave balance too low!");
+            LeaveRequest req = new LeaveRequest(emp.getEmpId(), start.toString(), end.toString(), type, reason, days);
+            if (replacing == null) commitApply(req);
+            else commitEdit(replacing, req);
+            ok = true;
+            return req;
+        } finally {
+            lock.unlock();
+            Metrics.record(Metrics.Op.APPLY, t0, ok);
+        }
+    }
+    void cancelLeave(Employee emp, LeaveRequest r) {
+        long t0 = System.nanoTime();
+        boolean ok = false;
+        ReentrantLock lock = employeeLocks.forKey(emp.getEmpId());
+        lock.lock();
+        try {
+            read(() -> { ownPending(emp, r); return null; });
+            commitCancel(r);
+            ok = true;
+        } finally {
+            lock.unlock();
+            Metrics.record(Metrics.Op.CANCEL, t0, ok);
+        }
+    }
+    // A user's team only changes under lockAll, so once the employee stripe is held it is fixed;
+    // if it changed before that, the team stripe taken is the wrong one and the decision retries.
+    void decideLeave(LeaveRequest r, boolean approve) {
+        long t0 = System.nanoTime();
+        boolean ok = false;
+        try {
+            while (true) {
+                String teamName = read(() -> teamOf(r.getEmpId()));
+                ReentrantLock team = teamName == null ? null : teamLocks.forKey(teamName.hashCode());
+                ReentrantLock lock = employeeLocks.forKey(r.getEmpId());
+                if (team != null) team.lock();
+                lock.lock();
+                try {
+                    int[] peak = read(() -> {
+                        if (requestIndex.byReqId(r.getReqId()) != r || !r.isPending()) throw new LeaveException("No such pending request.");
+                        if (!Objects.equals(teamName, teamOf(r.getEmpId()))) return null;
+                        return new int[]{approve ? peakWith(r) : 0, teamLimit(teamName)};
+                    });
+                    if (peak == null) continue;
+                    if (peak[0] > peak[1])
+                        throw new LeaveException("Cannot approve: " + peak[0] + " members of team " + teamName + " would be out on the same day (limit " + peak[1] + ").");
+                    if (approve) commitApprove(r);
+                    else commitReject(r);
+                    ok = true;
+                    return;
+                } finally {
+                    lock.unlock();
+                    if (team != null) team.unlock();
+                }
+            }
+        } finally {
+            Metrics.record(approve ? Metrics.Op.APPROVE : Metrics.Op.REJECT, t0, ok);
+        }
+    }
+    // Pending requests matching every field that is set (null / 0 = any). Dates select requests
+    // overlapping [from, to]; team is the owner's team (User.getTeam).
+    static class LeaveFilter {
+        Integer empId;
+        String team;
+        Byte type;
+        LocalDate from, to;
+        int maxDays;
+
+        boolean matches(LeaveRequest r, User owner) {
+            if (empId != null && r.getEmpId() != empId) return false;
+            if (team != null && (owner == null || !Objects.equals(owner.getTeam(), team))) return false;
+            if (type != null && r.typeCode() != type) return false;
+            if (from != null && r.endDay() < from.toEpochDay()) return false;
+            if (to != null && r.startDay() > to.toEpochDay()) return false;
+            return maxDays <= 0 || r.getRequestedDays() <= maxDays;
+        }
+        // Only the listed types; LeaveRequest.typeCode would bucket anything else into Others.
+        static byte type(String name) {
+            String t = name.trim();
+            for (byte i = 0; i < LeaveRequest.TYPE_NAMES.length; i++)
+                if (LeaveRequest.TYPE_NAMES[i].equalsIgnoreCase(t)) return i;
+            throw new IllegalArgumentException("unknown type: " + name + " (" + String.join("/", LeaveRequest.TYPE_NAMES) + ")");
+        }
+    }
+    static class BulkResult {
+        int matched, approved, rejected;
+        long daysRestored, millis;
+        final List<Integer> overCapacity = new ArrayList<>();
+    }
+
+    // Approves or rejects every pending request matching f in one pass, oldest first: the
+    // decisions are journaled as one batch (one write, one fsync) and then applied, with the
+    // usual audit blocks. Approvals that would push a team over the daily limit are skipped,
+    // counting the approvals earlier in the same batch. Other operations wait until it is done.
+    BulkResult decideMatching(LeaveFilter f, boolean approve) {
+        long t0 = System.nanoTime();
+        BulkResult res = new BulkResult();
+        lockAll();
+        try {
+            List<LeaveRequest> matched = pendingMatching(f);
+            res.matched = matched.size();
+            List<LeaveRequest> picked = new ArrayList<>(matched.size());
+            if (approve) {
+                // Approvals picked so far are counted in tentatively, then taken out again before
+                // the real apply re-adds them.
+                for (LeaveRequest r : matched) {
+                    String team = teamOf(r.getEmpId());
+                    if (team != null && capacity.peak(team, r.startDay(), r.endDay()) + 1 > teamLimit(team)) {
+                        res.overCapacity.add(r.getReqId());
+                        continue;
+                    }
+                    if (team != null) capacity.add(team, r, 1);
+                    picked.add(r);
+                }
+                for (LeaveRequest r : picked) {
+                    String team = teamOf(r.getEmpId());
+                    if (team != null) capacity.add(team, r, -1);
+                }
+            } else {
+                picked.addAll(matched);
+            }
+            List<byte[]> records = new ArrayList<>(picked.size());
+            for (LeaveRequest r : picked)
+                records.add(encodeRecord(approve ? Journal.APPROVE : Journal.REJECT, out -> out.writeInt(r.getReqId())));
+            appendExclusive(records);
+            for (LeaveRequest r : picked) {
+                if (approve) {
+                    doApprove(r);
+                    res.approved++;
+                } else {
+                    doReject(r);
+                    res.rejected++;
+                    res.daysRestored += r.getRequestedDays();
+                }
+            }
+            maybeSnapshot();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            unlockAll();
+        }
+        Metrics.record(Metrics.Op.BULK_DECIDE, t0);
+        res.millis = (System.nanoTime() - t0) / 1_000_000;
+        return res;
+    }
+    // Walks only the pending buckets (of one employee, one team, or everyone), sorted by ReqID.
+    private List<LeaveRequest> pendingMatching(LeaveFilter f) {
+        List<LeaveRequest> out = new ArrayList<>();
+        Iterable<? extends User> owners = f.empId != null
+                ? (getUserById(f.empId) == null ? List.<User>of() : List.of(getUserById(f.empId)))
+                : users;
+        for (User u : owners)
+            for (LeaveRequest r : requestIndex.forEmployee(u.getEmpId(), "PENDING"))
+                if (f.matches(r, u)) out.add(r);
+        out.sort(Comparator.comparingInt(LeaveRequest::getReqId));
+        return out;
+    }
+    private void ownPending(Employee emp, LeaveRequest r) {
+        if (r.getEmpId() != emp.getEmpId() || requestIndex.byReqId(r.getReqId()) != r || !r.isPending())
+            throw new LeaveException("Only your own pending requests can be changed.");
+    }
+    // Consistent read of shared state; many readers at once, never during a commit.
+    <T> T read(Supplier<T> reader) {
+        store.readLock().lock();
+        try { return reader.get(); }
+        finally { store.readLock().unlock(); }
+    }
+    // Stops every leave operation, for bulk changes such as imports and for shutdown.
+    void lockAll() {
+        teamLocks.lockAll();
+        employeeLocks.lockAll();
+        commits.writeLock().lock();
+        store.writeLock().lock();
+    }
+    void unlockAll() {
+        store.writeLock().unlock();
+        commits.writeLock().unlock();
+        employeeLocks.unlockAll();
+        teamLocks.unlockAll();
+    }
+
+    // ---------- State changes ----------
+    // Each commitX writes its journal record first and only then applies it through doX;
+    // replay feeds the same records back through doX, so both paths rebuild identical state.
+    // Every SNAPSHOT_EVERY records the state is snapshotted and the journal restarted.
+    // Request transitions also append to the audit chain, which replay re-derives and cross-checks.
+    boolean openStore(Path snapshot, Path journalFile, Path auditFile) {
+        try {
+            lockStore(journalFile.resolveSibling(journalFile.getFileName() + ".lock"));
+            Snapshot.Header snap = Snapshot.read(snapshot, this);
+            chain = AuditChain.open(auditFile, snap.auditBlocks);
+            journal = Journal.open(journalFile, snap.epoch, this::replayRecord);
+            chain.finishReplay();
+            snapshotFile = snapshot;
+            if (!users.isEmpty())
+                printlnInfo("Restored " + users.size() + " users and " + requests.size() + " requests ("
+                        + journal.recordsInFile() + " journal records replayed, " + chain.size() + " audit blocks)");
+            return true;
+        } catch (IOException | UncheckedIOException e) {
+            printlnError("Cannot open store: " + (e instanceof UncheckedIOException ? e.getCause() : e).getMessage());
+            unlockStore();
+            return false;
+        }
+    }
+    // A second process on the same files would interleave its journal records and snapshots with ours.
+    private void lockStore(Path lockFile) throws IOException {
+        FileChannel ch = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (ch.tryLock() != null) { storeLock = ch; return; }
+        } catch (OverlappingFileLockException e) {
+            // already held by this JVM
+        }
+        ch.close();
+        throw new IOException(lockFile + " is locked; another instance is using this store");
+    }
+    private void unlockStore() {
+        if (storeLock == null) return;
+        try { storeLock.close(); } // closing the channel releases the lock
+        catch (IOException e) { printlnError("Failed to release store lock: " + e.getMessage()); }
+        storeLock = null;
+    }
+    // Explicit snapshots stop every operation first.
+    void snapshot() throws IOException {
+        lockAll();
+        try { writeSnapshot(); }
+        finally { unlockAll(); }
+    }
+    private void writeSnapshot() throws IOException {
+        long next = journal.epoch() + 1;
+        if (chain != null) chain.force(); // the snapshot vouches for every block so far
+        Snapshot.write(snapshotFile, next, this);
+        journal.reset(next);
+    }
+    // Skipped while another commit's record is written but not yet applied (it would be cut from
+    // the journal without being in the snapshot); a later commit tries again.
+    private void maybeSnapshot() {
+        if (journal == null || journal.recordsInFile() < SNAPSHOT_EVERY) return;
+        try { journal.ifQuiet(publishedSeq, this::writeSnapshot); }
+        catch (IOException e) { printlnError("Snapshot failed: " + e.getMessage()); }
+    }
+    void closeStore() {
+        if (journal == null) return;
+        try {
+            if (journal.recordsInFile() > 0) snapshot();
+            journal.close();
+            if (chain != null) chain.close();
+        } catch (IOException e) {
+            printlnError("Failed to close store: " + e.getMessage());
+        }
+        journal = null;
+        chain = null;
+        unlockStore();
+    }
+
+    interface RecordWriter { void write(DataOutputStream out) throws IOException; }
+
+    static byte[] encodeRecord(byte op, RecordWriter body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(op);
+        body.write(out);
+        return bytes.toByteArray();
+    }
+    // Durable before visible: the record is written and synced (the fsync wait is shared with
+    // concurrent commits and holds no store lock), and only then applied, in journal order, under
+    // the store lock. If the sync fails the change is never applied and the journal refuses
+    // every later commit.
+    private void commit(byte op, RecordWriter body, Runnable apply) {
+        try {
+            commit(List.of(encodeRecord(op, body)), apply);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    // Several records that stand or fall together, applied by one apply.
+    private void commit(List<byte[]> records, Runnable apply) throws IOException {
+        commits.readLock().lock();
+        try {
+            Journal j = journal;
+            long seq = 0;
+            if (j != null) {
+                seq = j.write(records);
+                j.awaitDurable(seq);
+            }
+            publish(seq, records.size(), apply);
+        } finally {
+            commits.readLock().unlock();
+        }
+    }
+    // Applies journal records up to seq once every earlier record is applied (seq 0 = not journaled).
+    // A failed sync fails all later records too, so nobody waits for a record that never comes.
+    private void publish(long seq, int count, Runnable apply) {
+        store.writeLock().lock();
+        try {
+            while (seq > 0 && publishedSeq < seq - count) published.awaitUninterruptibly();
+            try {
+                apply.run();
+            } finally {
+                if (seq > 0) {
+                    publishedSeq = seq;
+                    published.signalAll();
+                }
+            }
+            maybeSnapshot();
+        } finally {
+            store.writeLock().unlock();
+        }
+    }
+    // Journals a batch for a caller holding lockAll, which then applies it; nothing else is in flight.
+    void appendExclusive(List<byte[]> records) throws IOException {
+        if (journal == null || records.isEmpty()) return;
+        journal.appendAll(records);
+        publishedSeq = journal.records();
+    }
+    private static byte roleCode(User u) { return (byte) (u instanceof Admin ? 3 : u instanceof Manager ? 2 : 1); }
+    private static User newUser(byte role, int id, String name, String email, String pw, int balance) {
+        switch (role) {
+            case 3: return new Admin(id, name, email, pw, balance);
+            case 2: return new Manager(id, name, email, pw, balance);
+            default: return new Employee(id, name, email, pw, balance);
+        }
+    }
+    static void writeUser(DataOutputStream out, User u) throws IOException {
+        out.writeByte(roleCode(u)); out.writeInt(u.getEmpId());
+        out.writeUTF(u.getName()); out.writeUTF(u.getEmail()); out.writeUTF(u.getPassword());
+        out.writeInt(u.getLeaveBalance());
+    }
+    static void writeRequest(DataOutputStream out, LeaveRequest r) throws IOException {
+        out.writeInt(r.getReqId()); out.writeInt(r.getEmpId());
+        out.writeUTF(r.getStart()); out.writeUTF(r.getEnd());
+        out.writeUTF(r.getType()); out.writeUTF(r.getComments() == null ? "" : r.getComments());
+        out.writeInt(r.getRequestedDays());
+    }
+    // Imported rows carry their full state; they are history, so no balance is deducted for them.
+    private static void writeImportedUser(DataOutputStream out, User u) throws IOException {
+        writeUser(out, u);
+        out.writeInt(u.getBadges());
+        out.writeUTF(u.getLastLogin());
+    }
+    private static LeaveRequest readRequest(DataInput in) throws IOException {
+        return new LeaveRequest(in.readInt(), in.readInt(), in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readInt());
+    }
+
+    void commitUser(User u) {
+        if (u.getTeam() == null) { commit(Journal.USER, out -> writeUser(out, u), () -> addUser(u)); return; }
+        try {
+            commit(List.of(encodeRecord(Journal.USER, out -> writeUser(out, u)), teamRecord(u.getEmpId(), u.getTeam())), () -> addUser(u));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    static byte[] teamRecord(int empId, String team) throws IOException {
+        return encodeRecord(Journal.TEAM, out -> { out.writeInt(empId); out.writeUTF(team == null ? "" : team); });
+    }
+    // Team changes stop every leave operation so no capacity check runs against a half-moved team.
+    void commitTeam(User u, String team) {
+        lockAll();
+        try { commit(Journal.TEAM, out -> { out.writeInt(u.getEmpId()); out.writeUTF(team == null ? "" : team); }, () -> setTeam(u, team)); }
+        finally { unlockAll(); }
+    }
+    void commitTeamLimit(String team, int limit) {
+        lockAll();
+        try { commit(Journal.TEAM_LIMIT, out -> { out.writeUTF(team); out.writeInt(limit); }, () -> setTeamLimit(team, limit)); }
+        finally { unlockAll(); }
+    }
+    void commitApply(LeaveRequest r) {
+        commit(Journal.APPLY, out -> writeRequest(out, r), () -> doApply(r));
+    }
+    void commitCancel(LeaveRequest r) {
+        commit(Journal.CANCEL, out -> out.writeInt(r.getReqId()), () -> doCancel(r));
+    }
+    void commitEdit(LeaveRequest old, LeaveRequest edited) {
+        commit(Journal.EDIT, out -> { out.writeInt(old.getReqId()); writeRequest(out, edited); },
+                () -> { doCancel(old); doApply(edited); });
+    }
+    void commitApprove(LeaveRequest r) {
+        commit(Journal.APPROVE, out -> out.writeInt(r.getReqId()), () -> doApprove(r));
+    }
+    void commitReject(LeaveRequest r) {
+        commit(Journal.REJECT, out -> out.writeInt(r.getReqId()), () -> doReject(r));
+    }
+    void commitBalance(User u, int balance) {
+        commit(Journal.BALANCE, out -> { out.writeInt(u.getEmpId()); out.writeInt(balance); }, () -> setLeaveBalance(u, balance));
+    }
+    void commitFeedback(User u, String message) {
+        commit(Journal.FEEDBACK, out -> { out.writeInt(u.getEmpId()); out.writeUTF(message); }, () -> doFeedback(u, message));
+    }
+    void commitPassword(User u, String password, boolean mustChange) {
+        commit(Journal.PASSWORD, out -> writePassword(out, u.getEmpId(), password, mustChange), () -> {
+            u.setPassword(password);
+            u.setMustChangePassword(mustChange);
+        });
+    }
+    static void writePassword(DataOutputStream out, int empId, String password, boolean mustChange) throws IOException {
+        out.writeInt(empId); out.writeUTF(password); out.writeBoolean(mustChange);
+    }
+    void commitLogin(User u, String when) {
+        commit(Journal.LOGIN, out -> { out.writeInt(u.getEmpId()); out.writeUTF(when); }, () -> u.setLastLogin(when));
+    }
+
+    void doApply(LeaveRequest r) {
+        addRequest(r);
+        audit(r, AuditChain.APPLY, null, r.getStatus());
+        User u = getUserById(r.getEmpId());
+        if (u != null) setLeaveBalance(u, u.getLeaveBalance() - r.getRequestedDays());
+    }
+    private void doImport(LeaveRequest r) {
+        addRequest(r);
+        audit(r, AuditChain.IMPORT, null, r.getStatus());
+    }
+    private void doCancel(LeaveRequest r) {
+        User u = getUserById(r.getEmpId());
+        if (u != null) setLeaveBalance(u, u.getLeaveBalance() + r.getRequestedDays());
+        audit(r, AuditChain.CANCEL, r.getStatus(), "CANCELLED");
+        removeRequest(r);
+    }
+    private void doApprove(LeaveRequest r) {
+        String old = r.getStatus();
+        setStatus(r, "APPROVED");
+        audit(r, AuditChain.APPROVE, old, "APPROVED");
+    }
+    void doReject(LeaveRequest r) {
+        String old = r.getStatus();
+        setStatus(r, "REJECTED");
+        audit(r, AuditChain.REJECT, old, "REJECTED");
+        User u = getUserById(r.getEmpId());
+        if (u != null) setLeaveBalance(u, u.getLeaveBalance() + r.getRequestedDays());
+    }
+    private void audit(LeaveRequest r, byte event, String from, String to) {
+        if (chain == null) return;
+        try { chain.append(r, event, from, to); }
+        catch (IOException e) { throw new UncheckedIOException(e); }
+    }
+    private void doFeedback(User u, String message) {
+        feedbacks.add(new HRFeedback(u.getName(), message));
+        setBadges(u, u.getBadges() + 1);
+    }
+
+    void replayRecord(DataInput in) throws IOException {
+        byte op = in.readByte();
+        switch (op) {
+            case Journal.USER:
+                addUser(newUser(in.readByte(), in.readInt(), in.readUTF(), in.readUTF(), in.readUTF(), in.readInt()));
+                break;
+            case Journal.IMPORT_USER: {
+                User u = newUser(in.readByte(), in.readInt(), in.readUTF(), in.readUTF(), in.readUTF(), in.readInt());
+                u.setBadges(in.readInt());
+                u.setLastLogin(in.readUTF());
+                addUser(u);
+                break;
+            }
+            case Journal.APPLY:
+                doApply(readRequest(in));
+                break;
+            case Journal.IMPORT_REQUEST: {
+                LeaveRequest r = readRequest(in);
+                r.setStatus(Snapshot.knownStatus(in.readUTF()));
+                doImport(r);
+                break;
+            }
+            case Journal.CANCEL:
+                doCancel(replayTarget(in.readInt()));
+                break;
+            case Journal.EDIT: {
+                LeaveRequest old = replayTarget(in.readInt());
+                doCancel(old);
+                doApply(readRequest(in));
+                break;
+            }
+            case Journal.APPROVE:
+                doApprove(replayTarget(in.readInt()));
+                break;
+            case Journal.REJECT:
+                doReject(replayTarget(in.readInt()));
+                break;
+            case Journal.BALANCE:
+                setLeaveBalance(replayUser(in.readInt()), in.readInt());
+                break;
+            case Journal.FEEDBACK:
+                doFeedback(replayUser(in.readInt()), in.readUTF());
+                break;
+            case Journal.LOGIN:
+                replayUser(in.readInt()).setLastLogin(in.readUTF());
+                break;
+            case Journal.TEAM:
+                setTeam(replayUser(in.readInt()), teamName(in.readUTF()));
+                break;
+            case Journal.TEAM_LIMIT:
+                setTeamLimit(in.readUTF(), in.readInt());
+                break;
+            case Journal.PASSWORD: {
+                User u = replayUser(in.readInt());
+                u.setPassword(in.readUTF());
+                u.setMustChangePassword(in.readBoolean());
+                break;
+            }
+            default:
+                throw new IOException("Unknown journal record type " + op);
+        }
+    }
+    private LeaveRequest replayTarget(int reqId) throws IOException {
+        LeaveRequest r = requestIndex.byReqId(reqId);
+        if (r == null) throw new IOException("Journal refers to unknown request " + reqId);
+        return r;
+    }
+    private User replayUser(int empId) throws IOException {
+        User u = getUserById(empId);
+        if (u == null) throw new IOException("Journal refers to unknown employee " + empId);
+        return u;
+    }
+
+    // Every user/request/status/balance change goes through these so the indexes stay in step.
+    void addUser(User u) {
+        User old = users.byId(u.getEmpId());
+        if (!users.add(u)) return;
+        if (old != null) {
+            stats.userRemoved(old);
+            boards.remove(old);
+            if (!Objects.equals(old.getTeam(), u.getTeam())) moveApproved(u.getEmpId(), old.getTeam(), u.getTeam());
+        }
+        stats.userAdded(u);
+        boards.update(u);
+        attendance.userAdded(old, u);
+    }
+    void addRequest(LeaveRequest r) {
+        requests.put(r.getReqId(), r);
+        requestIndex.add(r);
+        absences.add(r);
+        attendance.add(r);
+        countAbsence(r, 1);
+        stats.requestAdded(r);
+        profiles.requestAdded(r);
+    }
+    void removeRequest(LeaveRequest r) {
+        requests.remove(r.getReqId(), r);
+        requestIndex.remove(r);
+        absences.remove(r);
+        attendance.remove(r);
+        countAbsence(r, -1);
+        stats.requestRemoved(r);
+        profiles.requestRemoved(r);
+    }
+    void setStatus(LeaveRequest r, String status) {
+        String old = r.getStatus();
+        countAbsence(r, -1);
+        r.setStatus(status);
+        countAbsence(r, 1);
+        requestIndex.statusChanged(r, old);
+        absences.statusChanged(r, old);
+        attendance.statusChanged(r, old);
+        stats.statusChanged(old, status);
+    }
+    // Only approved requests of users in a team take up team capacity.
+    private void countAbsence(LeaveRequest r, int delta) {
+        if (r.statusCode() != LeaveRequest.APPROVED) return;
+        String team = teamOf(r.getEmpId());
+        if (team != null) capacity.add(team, r, delta);
+    }
+    // Team members already out on the busiest day of r's range, if r were approved on top; 0 without a team.
+    int peakWith(LeaveRequest r) {
+        String team = teamOf(r.getEmpId());
+        return team == null ? 0 : capacity.peak(team, r.startDay(), r.endDay()) + 1;
+    }
+    String teamOf(int empId) {
+        User u = getUserById(empId);
+        return u == null ? null : u.getTeam();
+    }
+    int teamLimit(String team) {
+        Integer limit = team == null ? null : teamLimits.get(team);
+        return team == null ? Integer.MAX_VALUE : limit == null ? TEAM_DAILY_CAPACITY : limit;
+    }
+    // Team names go into CSV columns and prompts: trimmed, no commas; blank = no team.
+    static String teamName(String s) {
+        String t = s == null ? "" : s.trim();
+        if (t.isEmpty()) return null;
+        if (t.length() > 40 || t.indexOf(',') >= 0) throw new IllegalArgumentException("invalid team name '" + t + "' (max 40 characters, no commas)");
+        return t;
+    }
+    // Moves the user's approved days to the new team's calendar and re-files them under the new
+    // team in the stats, boards and attendance.
+    void setTeam(User u, String team) {
+        String old = u.getTeam();
+        if (Objects.equals(old, team)) return;
+        moveApproved(u.getEmpId(), old, team);
+        stats.userRemoved(u);
+        boards.remove(u);
+        u.setTeam(team);
+        stats.userAdded(u);
+        boards.update(u);
+        attendance.teamChanged(u, old);
+    }
+    private void moveApproved(int empId, String from, String to) {
+        for (LeaveRequest r : requestIndex.forEmployee(empId, "APPROVED")) {
+            if (from != null) capacity.add(from, r, -1);
+            if (to != null) capacity.add(to, r, 1);
+        }
+    }
+    // limit <= 0 goes back to the default.
+    void setTeamLimit(String team, int limit) {
+        if (limit <= 0) teamLimits.remove(team);
+        else teamLimits.put(team, limit);
+    }
+    void setLeaveBalance(User u, int balance) {
+        int old = u.getLeaveBalance();
+        u.setLeaveBalance(balance);
+        stats.balanceChanged(u, old, balance);
+        boards.update(u);
+    }
+    void setBadges(User u, int badges) {
+        u.setBadges(badges);
+        boards.update(u);
+    }
+
     // Utility
     User getUserById(int empId) {
-        for (User u : users) if (u.getEmpId() == empId) return u;
-        return null;
+        return users.byId(empId);
     }
 }
 